@@ -0,0 +1,200 @@
+package com.viz.jira.app.ppt.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.config.util.JiraHome;
+import com.atlassian.jira.issue.CustomFieldManager;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.issue.RendererManager;
+import com.atlassian.jira.issue.customfields.impl.SelectCFType;
+import com.atlassian.jira.issue.customfields.impl.UserCFType;
+import com.atlassian.jira.issue.customfields.option.Option;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.jira.issue.status.Status;
+import com.atlassian.jira.issue.status.category.StatusCategory;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.sdo.CustomFieldName;
+import com.viz.jira.app.ppt.service.CompiledTemplate;
+import com.viz.jira.app.ppt.service.CustomFieldResolverImpl;
+import com.viz.jira.app.ppt.service.ExportMetricsServiceImpl;
+import com.viz.jira.app.ppt.service.HtmlToPptServiceImpl;
+import com.viz.jira.app.ppt.service.IssueDataServiceImpl;
+import com.viz.jira.app.ppt.service.PPTGenerationServiceImpl;
+import com.viz.jira.app.ppt.service.SlideCacheService;
+import com.viz.jira.app.ppt.service.SlideCacheServiceImpl;
+import com.viz.jira.app.ppt.service.TemplateServiceImpl;
+import com.viz.jira.app.ppt.service.WikiRenderServiceImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.poi.util.IOUtils;
+
+/**
+ * Wires the real services of the app against stubbed Jira components. The multi-line fields are
+ * "rendered" by returning the recorded HTML fixtures, so the benchmarks measure our code and POI,
+ * not the Jira wiki renderer.
+ */
+class BenchmarkFixtures {
+
+  static final String ISSUE_KEY = "PMO-1234";
+
+  final TemplateServiceImpl templateService;
+  final CompiledTemplate template;
+  final IssueDataServiceImpl issueDataService;
+  final HtmlToPptServiceImpl htmlToPptService;
+  final PPTGenerationServiceImpl pptGenerationService;
+  /* Patches the slides of its previous export, the issue content never changes */
+  final PPTGenerationServiceImpl patchingGenerationService;
+  final Issue issue;
+
+  /**
+   * @param commentBlockFixture File name of the "Comment Block" fixture
+   * @param milestonesFixture File name of the "Milestones" fixture
+   */
+  BenchmarkFixtures(String commentBlockFixture, String milestonesFixture) throws Exception {
+    Map<String, String> renderedFields = new HashMap<>();
+    renderedFields.put(CustomFieldName.PXT_SUMMARY, readFixture("pxt-summary.html"));
+    renderedFields.put(CustomFieldName.COMMENT_BLOCK, readFixture(commentBlockFixture));
+    renderedFields.put(CustomFieldName.MILESTONES, readFixture(milestonesFixture));
+
+    issue = mockIssue();
+    CustomFieldManager customFieldManager = mockCustomFieldManager(issue);
+
+    /* The wiki markup of each field is its name, the renderer maps it back to the fixture */
+    RendererManager rendererManager = mock(RendererManager.class);
+    when(rendererManager.getRenderedContent(anyString(), anyString(), any()))
+        .thenAnswer(invocation -> renderedFields.getOrDefault(invocation.getArgument(1), ""));
+
+    // The caches are per viewer
+    ApplicationUser viewer = mock(ApplicationUser.class);
+    when(viewer.getId()).thenReturn(10000L);
+    when(viewer.getKey()).thenReturn("viewer");
+    JiraAuthenticationContext authContext = mock(JiraAuthenticationContext.class);
+    when(authContext.getLoggedInUser()).thenReturn(viewer);
+
+    // The timers are updated as in production, but not published to JMX
+    ExportMetricsServiceImpl exportMetricsService = new ExportMetricsServiceImpl();
+
+    /* No Jira home: only the template packaged with the plugin is loaded, nothing is watched */
+    templateService = new TemplateServiceImpl(mock(JiraHome.class));
+    templateService.afterPropertiesSet();
+    template = templateService.getDefaultTemplate();
+
+    CustomFieldResolverImpl customFieldResolver = new CustomFieldResolverImpl(customFieldManager,
+        mock(EventPublisher.class));
+    customFieldResolver.afterPropertiesSet();
+
+    WikiRenderServiceImpl wikiRenderService = new WikiRenderServiceImpl(rendererManager,
+        authContext, exportMetricsService);
+    issueDataService = new IssueDataServiceImpl(mock(IssueManager.class), authContext,
+        customFieldResolver, wikiRenderService, exportMetricsService);
+    htmlToPptService = new HtmlToPptServiceImpl();
+    // No slide is ever cached, every export is generated from scratch
+    pptGenerationService = new PPTGenerationServiceImpl(authContext, htmlToPptService,
+        issueDataService, mock(SlideCacheService.class), exportMetricsService);
+    patchingGenerationService = new PPTGenerationServiceImpl(authContext, htmlToPptService,
+        issueDataService, new SlideCacheServiceImpl(exportMetricsService), exportMetricsService);
+  }
+
+  void tearDown() throws IOException {
+    issueDataService.destroy();
+    templateService.destroy();
+  }
+
+  static String readFixture(String fileName) {
+    try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + fileName)) {
+      if (in == null) {
+        throw new IllegalArgumentException("Unknown fixture " + fileName);
+      }
+      return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Issue mockIssue() {
+    StatusCategory statusCategory = mock(StatusCategory.class);
+    when(statusCategory.getKey()).thenReturn(StatusCategory.IN_PROGRESS);
+    Status status = mock(Status.class);
+    when(status.getName()).thenReturn("Execution");
+    when(status.getStatusCategory()).thenReturn(statusCategory);
+
+    Issue issue = mock(Issue.class);
+    /* No id: the render cache is bypassed, so every iteration renders and parses the fields */
+    when(issue.getId()).thenReturn(null);
+    when(issue.getKey()).thenReturn(ISSUE_KEY);
+    when(issue.getSummary()).thenReturn("Next generation board bring-up program");
+    when(issue.getUpdated()).thenReturn(Timestamp.valueOf("2021-06-01 10:15:30"));
+    when(issue.getStatus()).thenReturn(status);
+    return issue;
+  }
+
+  private static CustomFieldManager mockCustomFieldManager(Issue issue) {
+    CustomFieldManager customFieldManager = mock(CustomFieldManager.class);
+
+    for (String fieldName : new String[]{CustomFieldName.PXT_SUMMARY,
+        CustomFieldName.COMMENT_BLOCK, CustomFieldName.MILESTONES}) {
+      CustomField field = mockField(customFieldManager, fieldName);
+      doReturn(fieldName).when(field).getValueFromIssue(issue);
+    }
+
+    for (String fieldName : new String[]{CustomFieldName.CONTACT, CustomFieldName.CTA,
+        CustomFieldName.SW_LEAD}) {
+      ApplicationUser user = mock(ApplicationUser.class);
+      when(user.getDisplayName()).thenReturn(fieldName + " User");
+      UserCFType cfType = mock(UserCFType.class);
+      CustomField field = mockField(customFieldManager, fieldName);
+      doReturn(user).when(cfType).getValueFromIssue(field, issue);
+      doReturn(cfType).when(field).getCustomFieldType();
+    }
+
+    Option option = mock(Option.class);
+    when(option.getValue()).thenReturn("Green");
+    SelectCFType selectCfType = mock(SelectCFType.class);
+    CustomField statusFlagField = mockField(customFieldManager, CustomFieldName.STATUS_FLAG2);
+    doReturn(option).when(selectCfType).getValueFromIssue(statusFlagField, issue);
+    doReturn(selectCfType).when(statusFlagField).getCustomFieldType();
+
+    return customFieldManager;
+  }
+
+  private static CustomField mockField(CustomFieldManager customFieldManager, String fieldName) {
+    CustomField field = mock(CustomField.class);
+    when(field.getId()).thenReturn("customfield_" + Math.abs(fieldName.hashCode()));
+    when(field.getName()).thenReturn(fieldName);
+    when(customFieldManager.getCustomFieldObjectsByName(fieldName))
+        .thenReturn(Collections.singletonList(field));
+    return field;
+  }
+
+  /**
+   * Discards the PPTX data, only counts it so the JIT can not drop the writing.
+   */
+  static class CountingOutputStream extends OutputStream {
+
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
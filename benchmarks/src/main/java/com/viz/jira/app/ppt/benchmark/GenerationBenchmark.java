@@ -0,0 +1,136 @@
+package com.viz.jira.app.ppt.benchmark;
+
+import com.viz.jira.app.ppt.benchmark.BenchmarkFixtures.CountingOutputStream;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One benchmark per stage of a single-issue export, plus the whole pipeline. SampleTime mode
+ * reports the latency percentiles, run with "-prof gc" for the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+  @Param({"comment-block-small.html", "comment-block-large.html"})
+  public String commentBlock;
+
+  @Param({"milestones-17.html", "milestones-120.html"})
+  public String milestones;
+
+  /* Only used by the whole exports, e.g. "-p compression=FAST" to compare one mode */
+  @Param({"FAST", "DEFAULT", "MAX"})
+  public CompressionMode compression;
+
+  private BenchmarkFixtures fixtures;
+  private IssueSlideData slideData;
+
+  /* A fresh template copy for the fill stage, opened outside of the measurement */
+  private XMLSlideShow emptyDeck;
+
+  /* A filled deck for the serialization stage */
+  private XMLSlideShow filledDeck;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    fixtures = new BenchmarkFixtures(commentBlock, milestones);
+    slideData = fixtures.issueDataService.collect(fixtures.issue, fixtures.template.getPlan());
+
+    filledDeck = fixtures.template.open();
+    fixtures.pptGenerationService.fillSlide(slideData, fixtures.template.getPlan(),
+        filledDeck.getSlides().get(0));
+
+    // The first export fills the slide cache of the patching service
+    fixtures.patchingGenerationService.generatePPT(fixtures.issue, fixtures.template, compression,
+        new CountingOutputStream());
+  }
+
+  @Setup(Level.Invocation)
+  public void openEmptyDeck() throws IOException {
+    emptyDeck = fixtures.template.open();
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeEmptyDeck() throws IOException {
+    emptyDeck.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    filledDeck.close();
+    fixtures.tearDown();
+  }
+
+  /**
+   * Field resolution, wiki rendering (stubbed) and Jsoup parsing.
+   */
+  @Benchmark
+  public IssueSlideData collect() throws IOException {
+    return fixtures.issueDataService.collect(fixtures.issue, fixtures.template.getPlan());
+  }
+
+  /**
+   * Writing the collected data into the table cells of the slide.
+   */
+  @Benchmark
+  public XSLFSlide fill() {
+    XSLFSlide slide = emptyDeck.getSlides().get(0);
+    fixtures.pptGenerationService.fillSlide(slideData, fixtures.template.getPlan(), slide);
+    return slide;
+  }
+
+  /**
+   * Writing the PPTX package with POI's own writer (XML serialization and default deflate). The
+   * exports use a streaming writer with the requested compression, see {@link #generate()}.
+   */
+  @Benchmark
+  public long serialize() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    filledDeck.write(out);
+    return out.count;
+  }
+
+  /**
+   * The whole single-issue export, as the controller runs it.
+   */
+  @Benchmark
+  public long generate() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    fixtures.pptGenerationService.generatePPT(fixtures.issue, fixtures.template, compression,
+        out);
+    return out.count;
+  }
+
+  /**
+   * The single-issue export of an issue whose content has not changed since its last export: the
+   * slides of that export are patched, nothing is rendered or filled.
+   */
+  @Benchmark
+  public long generatePatched() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    fixtures.patchingGenerationService.generatePPT(fixtures.issue, fixtures.template,
+        compression, out);
+    return out.count;
+  }
+}
@@ -0,0 +1,59 @@
+package com.viz.jira.app.ppt.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of getting a fresh template to fill: from the template cache, and (as the baseline) from
+ * the plugin resource the way every export used to do it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateLoadBenchmark {
+
+  private BenchmarkFixtures fixtures;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    fixtures = new BenchmarkFixtures("comment-block-small.html", "milestones-17.html");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    fixtures.tearDown();
+  }
+
+  @Benchmark
+  public XSLFSlide cachedTemplate() throws IOException {
+    try (XMLSlideShow ppt = fixtures.template.open()) {
+      return ppt.getSlides().get(0);
+    }
+  }
+
+  @Benchmark
+  public XSLFSlide classpathTemplate() throws IOException {
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream("Template.pptx");
+        XMLSlideShow ppt = new XMLSlideShow(in)) {
+      return ppt.getSlides().get(0);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.viz.jira.app.ppt.controller;
+
+import com.viz.jira.app.ppt.sdo.ExportJob;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@XmlRootElement(name = "job")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ExportJobModel {
+
+  @XmlElement
+  private String jobId;
+
+  @XmlElement
+  private String status;
+
+  @XmlElement
+  private String fileName;
+
+  @XmlElement
+  private String errorMessage;
+
+  // For JAXB
+  public ExportJobModel() {
+  }
+
+  public ExportJobModel(ExportJob job) {
+    this.jobId = job.getId();
+    this.status = job.getStatus().name();
+    this.fileName = job.getFileName();
+    this.errorMessage = job.getErrorMessage();
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+}
@@ -1,19 +1,50 @@
 package com.viz.jira.app.ppt.controller;
 
+import com.atlassian.jira.bc.issue.search.SearchService;
+import com.atlassian.jira.bc.issue.search.SearchService.ParseResult;
 import com.atlassian.jira.issue.Issue;
 import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.issue.search.SearchException;
+import com.atlassian.jira.issue.search.SearchResults;
 import com.atlassian.jira.permission.ProjectPermissions;
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.security.PermissionManager;
 import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.web.bean.PagerFilter;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.ExportJob;
+import com.viz.jira.app.ppt.sdo.PreviewFormat;
+import com.viz.jira.app.ppt.service.CompiledTemplate;
+import com.viz.jira.app.ppt.service.DeckCacheService;
+import com.viz.jira.app.ppt.service.DeckPregenerationService;
+import com.viz.jira.app.ppt.service.ExportJobService;
+import com.viz.jira.app.ppt.service.ExportLimitExceededException;
+import com.viz.jira.app.ppt.service.ExportLimitService;
+import com.viz.jira.app.ppt.service.ExportPermit;
 import com.viz.jira.app.ppt.service.PPTGenerationService;
-import java.io.File;
-import java.nio.file.Files;
+import com.viz.jira.app.ppt.service.SlidePreviewService;
+import com.viz.jira.app.ppt.service.TemplateService;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
@@ -30,28 +61,66 @@ public class PPTGenerationController {
   private static final String PPT_MEDIA_TYPE = "application/vnd.ms-powerpoint";
   private static final String PPTX_MEDIA_TYPE = "application/vnd.openxmlformats-officedocument.presentationml.presentation";
   private static final String CONTENT_DISPOSITION_HEADER = "Content-Disposition";
+  private static final String BULK_EXPORT_FILE_NAME = "issues.pptx";
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final int TOO_MANY_REQUESTS_STATUS = 429;
+  private static final String PNG_MEDIA_TYPE = "image/png";
+  private static final String PDF_MEDIA_TYPE = "application/pdf";
+
+  /* Preview widths in pixels, a thumbnail is small enough for dozens of them in an issue panel */
+  private static final int DEFAULT_PREVIEW_WIDTH = 1280;
+  private static final int THUMBNAIL_WIDTH = 320;
+  private static final int MIN_PREVIEW_WIDTH = 64;
+  private static final int MAX_PREVIEW_WIDTH = 2560;
+  private static final long THUMBNAIL_SLOT_WAIT_SECONDS = 30;
+
+  /* One slide per issue, a deck bigger than this is not a presentation anymore */
+  private static final int MAX_BULK_ISSUES = 500;
 
   private static final Logger log = LoggerFactory.getLogger(PPTGenerationController.class);
 
   private final IssueManager issueManager;
   private final JiraAuthenticationContext authContext;
   private final PermissionManager permissionManager;
+  private final SearchService searchService;
   private final PPTGenerationService pptGenerationService;
+  private final ExportJobService exportJobService;
+  private final DeckCacheService deckCacheService;
+  private final TemplateService templateService;
+  private final ExportLimitService exportLimitService;
+  private final SlidePreviewService slidePreviewService;
+  private final DeckPregenerationService deckPregenerationService;
 
   @Autowired
   public PPTGenerationController(@ComponentImport IssueManager issueManager,
       @ComponentImport JiraAuthenticationContext authContext,
       @ComponentImport PermissionManager permissionManager,
-      PPTGenerationService pptGenerationService) {
+      @ComponentImport SearchService searchService,
+      PPTGenerationService pptGenerationService,
+      ExportJobService exportJobService,
+      DeckCacheService deckCacheService,
+      TemplateService templateService,
+      ExportLimitService exportLimitService,
+      SlidePreviewService slidePreviewService,
+      DeckPregenerationService deckPregenerationService) {
     this.issueManager = issueManager;
     this.authContext = authContext;
     this.permissionManager = permissionManager;
+    this.searchService = searchService;
     this.pptGenerationService = pptGenerationService;
+    this.exportJobService = exportJobService;
+    this.deckCacheService = deckCacheService;
+    this.templateService = templateService;
+    this.exportLimitService = exportLimitService;
+    this.slidePreviewService = slidePreviewService;
+    this.deckPregenerationService = deckPregenerationService;
   }
 
   @GET
   @Produces({PPT_MEDIA_TYPE, PPTX_MEDIA_TYPE})
-  public Response exportPPT(@QueryParam("issueKey") String issueKey) {
+  public Response exportPPT(@QueryParam("issueKey") String issueKey,
+      @QueryParam("template") String templateName,
+      @QueryParam("compression") String compressionName, @Context Request request) {
     log.info("Attempt to export PPT from issue [{}]...", issueKey);
 
     ApplicationUser user = authContext.getLoggedInUser();
@@ -72,20 +141,73 @@ public class PPTGenerationController {
       return Response.status(Status.FORBIDDEN).build();
     }
 
+    // The next updates of the issue generate its deck for this user in the background
+    deckPregenerationService.recordExport(issue, user);
+
     try {
-      File file = pptGenerationService.generatePPT(issue);
+      CompiledTemplate template = templateService.selectTemplate(issue, templateName);
+      CompressionMode compression = CompressionMode.fromName(compressionName);
 
-      ResponseBuilder response = Response.ok((StreamingOutput) output -> {
-        Files.copy(file.toPath(), output);
-        boolean deleted = Files.deleteIfExists(file.toPath());
-        if (deleted) {
-          log.info("Temporary file has been deleted after download. [{}]", file.getName());
-        }
-      });
-      String contentDispositionHeaderValue = "attachment; filename=\"" + file.getName() + "\"";
+      /* The PPT is the same as long as the issue and the template are not changed, the client can
+       * keep its copy. It is validated on the ETag only: the Updated of the issue does not change
+       * with the template or the compression. */
+      String cacheKey = deckCacheService.getCacheKey(issue, user, template, compression);
+      EntityTag entityTag = new EntityTag(cacheKey);
+      ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+      if (notModified != null) {
+        log.info("The PPT of issue [{}] is not modified since the last download.", issueKey);
+        return notModified.tag(entityTag).build();
+      }
+
+      ByteBuffer cachedDeck = deckCacheService.get(cacheKey);
+      ResponseBuilder response;
+      if (cachedDeck != null) {
+        log.info("Serving the cached PPT of issue [{}].", issueKey);
+        response = Response.ok((StreamingOutput) output -> {
+          WritableByteChannel channel = Channels.newChannel(output);
+          while (cachedDeck.hasRemaining()) {
+            channel.write(cachedDeck);
+          }
+        });
+      } else {
+        // Only a generation is rate limited, not a PPT the client or the cache already has
+        exportLimitService.consumeToken(user);
+
+        /* The PPT is generated while the response is written, no temporary file is needed. The
+         * concurrent requests of the user for the same PPT share one generation, so only the
+         * request that generates it takes a permit. It is taken when the response is written, so
+         * a response that is never written (a HEAD request, a client gone) holds no permit. */
+        response = Response.ok((StreamingOutput) output -> {
+          try {
+            deckCacheService.write(cacheKey, deckOutput -> {
+              try (ExportPermit permit = exportLimitService.acquireGeneration(user)) {
+                pptGenerationService.generatePPT(issue, template, compression, deckOutput);
+              }
+            }, output);
+          } catch (ExportLimitExceededException e) {
+            // Nothing is written yet
+            throw new WebApplicationException(tooManyRequests(e.getRetryAfterSeconds()));
+          } catch (IOException | RuntimeException e) {
+            String message = String.format("Error while streaming the PPT for issue [%s]",
+                issueKey);
+            log.error(message, e);
+            throw e;
+          }
+        });
+      }
+
+      String fileName = pptGenerationService.getExportFileName(issue);
+      String contentDispositionHeaderValue = "attachment; filename=\"" + fileName + "\"";
       response.header(CONTENT_DISPOSITION_HEADER, contentDispositionHeaderValue);
+      response.tag(entityTag);
+      response.cacheControl(revalidateCacheControl());
 
       return response.build();
+    } catch (ExportLimitExceededException e) {
+      return tooManyRequests(e.getRetryAfterSeconds());
+    } catch (IllegalArgumentException e) {
+      log.warn("Error while export the PPT. {}", e.getMessage());
+      return Response.status(Status.BAD_REQUEST).build();
     } catch (Exception e) {
       String message = String.format("Error while generation the PPT for issue [%s]", issueKey);
       log.error(message, e);
@@ -93,6 +215,418 @@ public class PPTGenerationController {
     }
   }
 
+  /**
+   * Render the slide of the issue as a PNG (first slide) or a PDF (with the continuation slides),
+   * to preview it in the browser. With "thumbnail", a small PNG for the issue panels.
+   */
+  @GET
+  @Path("preview")
+  @Produces({PNG_MEDIA_TYPE, PDF_MEDIA_TYPE})
+  public Response previewSlide(@QueryParam("issueKey") String issueKey,
+      @QueryParam("template") String templateName, @QueryParam("format") String formatName,
+      @QueryParam("width") Integer width, @QueryParam("thumbnail") boolean thumbnail,
+      @Context Request request) {
+    log.info("Attempt to preview the slide of issue [{}]...", issueKey);
+
+    ApplicationUser user = authContext.getLoggedInUser();
+    if (user == null) {
+      log.info("User is not logged in. Response an Unauthorized status.");
+      return Response.status(Status.UNAUTHORIZED).build();
+    }
+
+    Issue issue = issueManager.getIssueObject(issueKey);
+    if (issue == null) {
+      log.error("Error while preview the slide. The issue with key [{}] does not exist", issueKey);
+      return Response.status(Status.NOT_FOUND).build();
+    }
+
+    if (hasNoViewIssuePermission(user, issue)) {
+      log.warn("PPT EXPORT WARNING: User [{}] has no permission to browse issue [{}]",
+          user.getUsername(), issueKey);
+      return Response.status(Status.FORBIDDEN).build();
+    }
+
+    try {
+      CompiledTemplate template = templateService.selectTemplate(issue, templateName);
+      PreviewFormat format = thumbnail ? PreviewFormat.PNG : PreviewFormat.fromName(formatName);
+      int previewWidth = getPreviewWidth(width, thumbnail);
+
+      String cacheKey = slidePreviewService.getCacheKey(issue, user, template, format,
+          previewWidth);
+      EntityTag entityTag = new EntityTag(cacheKey);
+      ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+      if (notModified != null) {
+        return notModified.tag(entityTag).build();
+      }
+
+      byte[] image = slidePreviewService.get(cacheKey);
+      if (image == null) {
+        /* A thumbnail is no download, and the panels request dozens of them at once: they are not
+         * rate limited, they wait for a generation slot instead. The other previews are limited
+         * like the exports, without holding a request thread. */
+        if (!thumbnail) {
+          exportLimitService.consumeToken(user);
+        }
+        try (ExportPermit permit = thumbnail
+            ? exportLimitService.acquireGeneration(user, THUMBNAIL_SLOT_WAIT_SECONDS,
+                TimeUnit.SECONDS)
+            : exportLimitService.acquireGeneration(user)) {
+          image = slidePreviewService.render(issue, user, template, format, previewWidth);
+        }
+      }
+
+      return Response.ok(image, format.getMediaType())
+          .tag(entityTag)
+          .cacheControl(revalidateCacheControl())
+          .build();
+    } catch (ExportLimitExceededException e) {
+      return tooManyRequests(e.getRetryAfterSeconds());
+    } catch (IllegalArgumentException e) {
+      log.warn("Error while preview the slide. {}", e.getMessage());
+      return Response.status(Status.BAD_REQUEST).build();
+    } catch (Exception e) {
+      String message = String.format("Error while rendering the slide of issue [%s]", issueKey);
+      log.error(message, e);
+      return Response.serverError().build();
+    }
+  }
+
+  @GET
+  @Path("bulk")
+  @Produces({PPT_MEDIA_TYPE, PPTX_MEDIA_TYPE})
+  public Response exportBulkPPT(@QueryParam("jql") String jql,
+      @QueryParam("issueKeys") String issueKeys, @QueryParam("template") String templateName,
+      @QueryParam("compression") String compressionName) {
+    log.info("Attempt to export PPT from JQL [{}] / issue keys [{}]...", jql, issueKeys);
+
+    ApplicationUser user = authContext.getLoggedInUser();
+    if (user == null) {
+      log.info("User is not logged in. Response an Unauthorized status.");
+      return Response.status(Status.UNAUTHORIZED).build();
+    }
+
+    // Checked before the search, which is already costly
+    try {
+      exportLimitService.consumeToken(user);
+    } catch (ExportLimitExceededException e) {
+      return tooManyRequests(e.getRetryAfterSeconds());
+    }
+
+    List<Issue> issues = new ArrayList<>();
+    Response errorResponse = resolveIssues(user, jql, issueKeys, issues);
+    if (errorResponse != null) {
+      return errorResponse;
+    }
+
+    CompiledTemplate template;
+    CompressionMode compression;
+    try {
+      template = templateService.selectTemplate(issues, templateName);
+      compression = CompressionMode.fromName(compressionName);
+    } catch (IllegalArgumentException e) {
+      log.warn("Error while export the PPT. {}", e.getMessage());
+      return Response.status(Status.BAD_REQUEST).build();
+    } catch (IOException e) {
+      log.error("Error while loading the PPT template.", e);
+      return Response.serverError().build();
+    }
+
+    // The permit is taken when the response is written, see exportPPT
+    ResponseBuilder response = Response.ok((StreamingOutput) output -> {
+      try (ExportPermit permit = acquireGeneration(user)) {
+        pptGenerationService.generatePPT(issues, template, compression, output);
+      } catch (IOException | RuntimeException e) {
+        if (!(e instanceof WebApplicationException)) {
+          String message = String.format("Error while streaming the PPT for %d issues",
+              issues.size());
+          log.error(message, e);
+        }
+        throw e;
+      }
+    });
+    String contentDispositionHeaderValue =
+        "attachment; filename=\"" + BULK_EXPORT_FILE_NAME + "\"";
+    response.header(CONTENT_DISPOSITION_HEADER, contentDispositionHeaderValue);
+
+    return response.build();
+  }
+
+  /**
+   * Submit an asynchronous export. The PPT is generated on a dedicated worker pool, poll
+   * {@link #getExportJob(String)} until it is done and then download it with
+   * {@link #downloadExportJob(String)}.
+   */
+  @POST
+  @Path("jobs")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response submitExportJob(@QueryParam("issueKey") String issueKey,
+      @QueryParam("jql") String jql, @QueryParam("issueKeys") String issueKeys,
+      @QueryParam("template") String templateName,
+      @QueryParam("compression") String compressionName) {
+    log.info("Attempt to submit an export job from issue [{}] / JQL [{}] / issue keys [{}]...",
+        issueKey, jql, issueKeys);
+
+    ApplicationUser user = authContext.getLoggedInUser();
+    if (user == null) {
+      log.info("User is not logged in. Response an Unauthorized status.");
+      return Response.status(Status.UNAUTHORIZED).build();
+    }
+
+    /* The jobs run on their own bounded pool, so they only need a token, not a generation
+     * permit */
+    try {
+      exportLimitService.consumeToken(user);
+    } catch (ExportLimitExceededException e) {
+      return tooManyRequests(e.getRetryAfterSeconds());
+    }
+
+    // A single issue key is just a bulk export of one issue
+    String keys = issueKey != null && !issueKey.trim().isEmpty() ? issueKey : issueKeys;
+    List<Issue> issues = new ArrayList<>();
+    Response errorResponse = resolveIssues(user, jql, keys, issues);
+    if (errorResponse != null) {
+      return errorResponse;
+    }
+
+    String fileName = issues.size() == 1
+        ? pptGenerationService.getExportFileName(issues.get(0))
+        : BULK_EXPORT_FILE_NAME;
+    try {
+      // The template is selected now, a reload while the job is queued does not change it
+      CompiledTemplate template = issues.size() == 1
+          ? templateService.selectTemplate(issues.get(0), templateName)
+          : templateService.selectTemplate(issues, templateName);
+      CompressionMode compression = CompressionMode.fromName(compressionName);
+      ExportJob job = exportJobService.submit(user, issues, template, compression, fileName);
+      return Response.status(Status.ACCEPTED).entity(new ExportJobModel(job)).build();
+    } catch (RejectedExecutionException e) {
+      return tooManyRequests(exportJobService.getRetryAfterSeconds());
+    } catch (IllegalArgumentException e) {
+      log.warn("Error while export the PPT. {}", e.getMessage());
+      return Response.status(Status.BAD_REQUEST).build();
+    } catch (IOException e) {
+      log.error("Error while loading the PPT template.", e);
+      return Response.serverError().build();
+    }
+  }
+
+  @GET
+  @Path("jobs/{jobId}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getExportJob(@PathParam("jobId") String jobId) {
+    ApplicationUser user = authContext.getLoggedInUser();
+    if (user == null) {
+      log.info("User is not logged in. Response an Unauthorized status.");
+      return Response.status(Status.UNAUTHORIZED).build();
+    }
+
+    ExportJob job = getOwnExportJob(user, jobId);
+    if (job == null) {
+      return Response.status(Status.NOT_FOUND).build();
+    }
+    return Response.ok(new ExportJobModel(job)).build();
+  }
+
+  @GET
+  @Path("jobs/{jobId}/download")
+  @Produces({PPT_MEDIA_TYPE, PPTX_MEDIA_TYPE})
+  public Response downloadExportJob(@PathParam("jobId") String jobId) {
+    ApplicationUser user = authContext.getLoggedInUser();
+    if (user == null) {
+      log.info("User is not logged in. Response an Unauthorized status.");
+      return Response.status(Status.UNAUTHORIZED).build();
+    }
+
+    ExportJob job = getOwnExportJob(user, jobId);
+    if (job == null) {
+      return Response.status(Status.NOT_FOUND).build();
+    }
+
+    // Read before the status, the result may be dropped in the meantime
+    byte[] result = job.getResult();
+    switch (job.getStatus()) {
+      case DONE:
+      case EXPIRED:
+        if (result == null) {
+          // The result has been dropped to make room, the client must export again
+          return Response.status(Status.GONE).build();
+        }
+        ResponseBuilder response = Response.ok((StreamingOutput) output -> output.write(result));
+        String contentDispositionHeaderValue =
+            "attachment; filename=\"" + job.getFileName() + "\"";
+        response.header(CONTENT_DISPOSITION_HEADER, contentDispositionHeaderValue);
+        return response.build();
+      case FAILED:
+        return Response.serverError().build();
+      default:
+        // Not finished yet, the client should keep polling
+        return Response.status(Status.CONFLICT).build();
+    }
+  }
+
+  /**
+   * @return The job, or null if it does not exist, has expired or belongs to another user
+   */
+  private ExportJob getOwnExportJob(ApplicationUser user, String jobId) {
+    ExportJob job = exportJobService.getJob(jobId);
+    if (job == null) {
+      log.info("The export job [{}] does not exist or has expired.", jobId);
+      return null;
+    }
+
+    if (!job.getUserKey().equals(user.getKey())) {
+      log.warn("PPT EXPORT WARNING: User [{}] has no permission to access export job [{}]",
+          user.getUsername(), jobId);
+      return null;
+    }
+    return job;
+  }
+
+  /**
+   * Find the issues to export from either the JQL or the comma separated issue keys, and add them
+   * to the given list.
+   *
+   * @return An error response, or null if at least one issue has been found
+   */
+  private Response resolveIssues(ApplicationUser user, String jql, String issueKeys,
+      List<Issue> issues) {
+    Response errorResponse;
+    if (jql != null && !jql.trim().isEmpty()) {
+      errorResponse = searchIssues(user, jql, issues);
+    } else if (issueKeys != null && !issueKeys.trim().isEmpty()) {
+      errorResponse = getIssues(user, issueKeys, issues);
+    } else {
+      log.warn("Error while export the PPT. Neither JQL nor issue keys are provided.");
+      errorResponse = Response.status(Status.BAD_REQUEST).build();
+    }
+
+    if (errorResponse == null && issues.isEmpty()) {
+      log.warn("Error while export the PPT. There is no issue to export.");
+      errorResponse = Response.status(Status.NOT_FOUND).build();
+    }
+    return errorResponse;
+  }
+
+  /**
+   * Run the JQL as the user and add the found issues to the given list.
+   *
+   * @return An error response, or null if the search succeeded
+   */
+  private Response searchIssues(ApplicationUser user, String jql, List<Issue> issues) {
+    ParseResult parseResult = searchService.parseQuery(user, jql);
+    if (!parseResult.isValid()) {
+      log.warn("Error while export the PPT. Invalid JQL [{}]: {}", jql,
+          parseResult.getErrors().getErrorMessages());
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+
+    SearchResults<Issue> results;
+    try {
+      results = searchService.search(user, parseResult.getQuery(),
+          new PagerFilter<>(MAX_BULK_ISSUES));
+    } catch (SearchException e) {
+      String message = String.format("Error while searching issues with JQL [%s]", jql);
+      log.error(message, e);
+      return Response.serverError().build();
+    }
+
+    if (results.getTotal() > MAX_BULK_ISSUES) {
+      log.warn("Error while export the PPT. JQL [{}] returns {} issues, the limit is {}.", jql,
+          results.getTotal(), MAX_BULK_ISSUES);
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+
+    for (Issue issue : results.getResults()) {
+      if (hasNoViewIssuePermission(user, issue)) {
+        log.warn("PPT EXPORT WARNING: User [{}] has no permission to browse issue [{}]. "
+            + "The issue is skipped.", user.getUsername(), issue.getKey());
+      } else {
+        issues.add(issue);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Load the comma separated issue keys and add the issues to the given list.
+   *
+   * @return An error response, or null if every issue exists and can be browsed by the user
+   */
+  private Response getIssues(ApplicationUser user, String issueKeys, List<Issue> issues) {
+    String[] keys = issueKeys.split(",");
+    if (keys.length > MAX_BULK_ISSUES) {
+      log.warn("Error while export the PPT. {} issue keys are given, the limit is {}.",
+          keys.length, MAX_BULK_ISSUES);
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+
+    for (String key : keys) {
+      String issueKey = key.trim();
+      if (issueKey.isEmpty()) {
+        continue;
+      }
+
+      Issue issue = issueManager.getIssueObject(issueKey);
+      if (issue == null) {
+        log.error("Error while export the PPT. The issue with key [{}] does not exist", issueKey);
+        return Response.status(Status.NOT_FOUND).build();
+      }
+
+      if (hasNoViewIssuePermission(user, issue)) {
+        log.warn("PPT EXPORT WARNING: User [{}] has no permission to browse issue [{}]",
+            user.getUsername(), issueKey);
+        return Response.status(Status.FORBIDDEN).build();
+      }
+      issues.add(issue);
+    }
+    return null;
+  }
+
+  /**
+   * @throws IllegalArgumentException If the requested width is out of bounds
+   */
+  private static int getPreviewWidth(Integer width, boolean thumbnail) {
+    if (width == null) {
+      return thumbnail ? THUMBNAIL_WIDTH : DEFAULT_PREVIEW_WIDTH;
+    }
+    if (width < MIN_PREVIEW_WIDTH || width > MAX_PREVIEW_WIDTH) {
+      throw new IllegalArgumentException("The preview width must be between " + MIN_PREVIEW_WIDTH
+          + " and " + MAX_PREVIEW_WIDTH + " pixels.");
+    }
+    return width;
+  }
+
+  /**
+   * Take a generation permit while the response is written, before any byte of it.
+   *
+   * @throws WebApplicationException A 429 response, if the user or the node already runs the
+   * maximum number of generations
+   */
+  private ExportPermit acquireGeneration(ApplicationUser user) {
+    try {
+      return exportLimitService.acquireGeneration(user);
+    } catch (ExportLimitExceededException e) {
+      throw new WebApplicationException(tooManyRequests(e.getRetryAfterSeconds()));
+    }
+  }
+
+  private Response tooManyRequests(int retryAfterSeconds) {
+    return Response.status(TOO_MANY_REQUESTS_STATUS)
+        .header(RETRY_AFTER_HEADER, retryAfterSeconds)
+        .build();
+  }
+
+  private CacheControl revalidateCacheControl() {
+    /* The browser may keep the PPT, but it must ask us (If-None-Match) before reusing it, since
+     * the issue can be changed at any time. */
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setPrivate(true);
+    cacheControl.setNoTransform(true);
+    cacheControl.setMustRevalidate(true);
+    cacheControl.setMaxAge(0);
+    return cacheControl;
+  }
+
   private boolean hasNoViewIssuePermission(ApplicationUser user, Issue issue) {
     return !hasViewIssuePermission(user, issue);
   }
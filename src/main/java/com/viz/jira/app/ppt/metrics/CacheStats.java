@@ -0,0 +1,42 @@
+package com.viz.jira.app.ppt.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Exposes the statistics a cache already keeps, without copying them.
+ */
+public class CacheStats implements CacheStatsMBean {
+
+  private final LongSupplier hits;
+  private final LongSupplier misses;
+  private final LongSupplier evictions;
+  private final LongSupplier size;
+
+  public CacheStats(LongSupplier hits, LongSupplier misses, LongSupplier evictions,
+      LongSupplier size) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.size = size;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.getAsLong();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.getAsLong();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.getAsLong();
+  }
+
+  @Override
+  public long getSize() {
+    return size.getAsLong();
+  }
+}
@@ -0,0 +1,15 @@
+package com.viz.jira.app.ppt.metrics;
+
+public interface CacheStatsMBean {
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  /**
+   * @return The size of the cached data, in the unit of the cache (characters or bytes)
+   */
+  long getSize();
+}
@@ -0,0 +1,55 @@
+package com.viz.jira.app.ppt.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExportCounters implements ExportCountersMBean {
+
+  private final LongAdder exports = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder outputBytes = new LongAdder();
+  private final AtomicLong inFlight = new AtomicLong();
+
+  public void started() {
+    inFlight.incrementAndGet();
+  }
+
+  public void succeeded(long bytes) {
+    inFlight.decrementAndGet();
+    exports.increment();
+    outputBytes.add(bytes);
+  }
+
+  public void failed() {
+    inFlight.decrementAndGet();
+    failures.increment();
+  }
+
+  @Override
+  public long getExportCount() {
+    return exports.sum();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  @Override
+  public long getOutputBytes() {
+    return outputBytes.sum();
+  }
+
+  @Override
+  public long getInFlightExports() {
+    return inFlight.get();
+  }
+
+  @Override
+  public void reset() {
+    // The in-flight gauge is not reset, the running exports will still decrement it
+    exports.reset();
+    failures.reset();
+    outputBytes.reset();
+  }
+}
@@ -0,0 +1,14 @@
+package com.viz.jira.app.ppt.metrics;
+
+public interface ExportCountersMBean {
+
+  long getExportCount();
+
+  long getFailureCount();
+
+  long getOutputBytes();
+
+  long getInFlightExports();
+
+  void reset();
+}
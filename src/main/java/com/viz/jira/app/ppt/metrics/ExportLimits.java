@@ -0,0 +1,62 @@
+package com.viz.jira.app.ppt.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the rejected requests, the current permits are read from the limiter itself.
+ */
+public class ExportLimits implements ExportLimitsMBean {
+
+  private final LongSupplier availablePermits;
+  private final long maxConcurrentGenerations;
+  private final LongSupplier trackedUsers;
+  private final LongAdder rateLimited = new LongAdder();
+  private final LongAdder concurrencyLimited = new LongAdder();
+
+  public ExportLimits(LongSupplier availablePermits, long maxConcurrentGenerations,
+      LongSupplier trackedUsers) {
+    this.availablePermits = availablePermits;
+    this.maxConcurrentGenerations = maxConcurrentGenerations;
+    this.trackedUsers = trackedUsers;
+  }
+
+  public void rateLimited() {
+    rateLimited.increment();
+  }
+
+  public void concurrencyLimited() {
+    concurrencyLimited.increment();
+  }
+
+  @Override
+  public long getAvailableGenerationPermits() {
+    return availablePermits.getAsLong();
+  }
+
+  @Override
+  public long getMaxConcurrentGenerations() {
+    return maxConcurrentGenerations;
+  }
+
+  @Override
+  public long getTrackedUsers() {
+    return trackedUsers.getAsLong();
+  }
+
+  @Override
+  public long getRateLimitedCount() {
+    return rateLimited.sum();
+  }
+
+  @Override
+  public long getConcurrencyLimitedCount() {
+    return concurrencyLimited.sum();
+  }
+
+  @Override
+  public void reset() {
+    rateLimited.reset();
+    concurrencyLimited.reset();
+  }
+}
@@ -0,0 +1,28 @@
+package com.viz.jira.app.ppt.metrics;
+
+public interface ExportLimitsMBean {
+
+  /**
+   * @return The number of generations that can start right now
+   */
+  long getAvailableGenerationPermits();
+
+  long getMaxConcurrentGenerations();
+
+  /**
+   * @return The number of users with a rate limit bucket
+   */
+  long getTrackedUsers();
+
+  /**
+   * @return The number of requests rejected because the user exceeded the rate limit
+   */
+  long getRateLimitedCount();
+
+  /**
+   * @return The number of requests rejected because too many generations were running
+   */
+  long getConcurrencyLimitedCount();
+
+  void reset();
+}
@@ -0,0 +1,24 @@
+package com.viz.jira.app.ppt.metrics;
+
+/**
+ * The stages of an export that are timed separately.
+ */
+public enum ExportStage {
+  TEMPLATE_LOAD("TemplateLoad"),
+  FIELD_RESOLUTION("FieldResolution"),
+  WIKI_RENDERING("WikiRendering"),
+  HTML_PARSING("HtmlParsing"),
+  SHAPE_FILLING("ShapeFilling"),
+  SERIALIZATION("Serialization"),
+  RENDERING("Rendering");
+
+  private final String mBeanName;
+
+  ExportStage(String mBeanName) {
+    this.mBeanName = mBeanName;
+  }
+
+  public String getMBeanName() {
+    return mBeanName;
+  }
+}
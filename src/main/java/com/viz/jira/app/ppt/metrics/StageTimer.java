@@ -0,0 +1,52 @@
+package com.viz.jira.app.ppt.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated timings of one export stage. It is updated from the request threads and the worker
+ * pools at the same time, so it only uses lock-free counters.
+ */
+public class StageTimer implements StageTimerMBean {
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public double getTotalTimeMillis() {
+    return totalNanos.sum() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMeanTimeMillis() {
+    long currentCount = count.sum();
+    return currentCount > 0 ? getTotalTimeMillis() / currentCount : 0;
+  }
+
+  @Override
+  public double getMaxTimeMillis() {
+    return maxNanos.get() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public void reset() {
+    count.reset();
+    totalNanos.reset();
+    maxNanos.set(0);
+  }
+}
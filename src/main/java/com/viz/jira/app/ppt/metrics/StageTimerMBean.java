@@ -0,0 +1,14 @@
+package com.viz.jira.app.ppt.metrics;
+
+public interface StageTimerMBean {
+
+  long getCount();
+
+  double getTotalTimeMillis();
+
+  double getMeanTimeMillis();
+
+  double getMaxTimeMillis();
+
+  void reset();
+}
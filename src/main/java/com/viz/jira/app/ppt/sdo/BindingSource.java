@@ -0,0 +1,54 @@
+package com.viz.jira.app.ppt.sdo;
+
+import javax.annotation.Nullable;
+
+/**
+ * Where the value of a bound table cell comes from. The key is the name used in the template
+ * bindings file.
+ */
+public enum BindingSource {
+
+  ISSUE_KEY("issueKey", true),
+  SUMMARY("summary", true),
+  UPDATED("updated", true),
+  STATUS("status", true),
+  OVERALL_HEALTH("overallHealth", true),
+  EXTERNAL_OWNER("externalOwner", false),
+  INTERNAL_OWNERS("internalOwners", false),
+  /* Argument: the index of the child element of the rendered body */
+  PXT_SUMMARY("pxtSummary", false),
+  COMMENT_BLOCK("commentBlock", false),
+  /* Argument: the indexes of the Jira columns, written to the successive PPT columns */
+  MILESTONES("milestones", true),
+  /* Argument: the name of any custom field, written as plain text */
+  CUSTOM_FIELD("field", false);
+
+  private final String key;
+  private final boolean repeatedOnContinuation;
+
+  BindingSource(String key, boolean repeatedOnContinuation) {
+    this.key = key;
+    this.repeatedOnContinuation = repeatedOnContinuation;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return True if the value is also written on the continuation slides of the issue
+   */
+  public boolean isRepeatedOnContinuation() {
+    return repeatedOnContinuation;
+  }
+
+  @Nullable
+  public static BindingSource fromKey(String key) {
+    for (BindingSource source : values()) {
+      if (source.key.equals(key)) {
+        return source;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,26 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One table cell of the template and the value written into it. The arguments are parsed when the
+ * template is compiled, not on every export.
+ */
+@Value
+@Builder
+public class CellBinding {
+
+  int row;
+  int column;
+  BindingSource source;
+
+  /* The custom field name of a CUSTOM_FIELD binding */
+  @Nullable
+  String fieldName;
+
+  /* The child index of a PXT_SUMMARY binding, or the Jira columns of a MILESTONES binding */
+  List<Integer> sourceIndexes;
+}
@@ -0,0 +1,48 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * How hard the parts of the PPTX are deflated. The media that are already compressed (PNG, JPEG,
+ * ...) are stored as they are in every mode.
+ */
+public enum CompressionMode {
+
+  /* Less CPU, bigger files */
+  FAST(Deflater.BEST_SPEED),
+  DEFAULT(Deflater.DEFAULT_COMPRESSION),
+  /* The smallest files, e.g. for the remote offices */
+  MAX(Deflater.BEST_COMPRESSION);
+
+  private final int level;
+
+  CompressionMode(int level) {
+    this.level = level;
+  }
+
+  /**
+   * @return The deflate level, see {@link Deflater}
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * @param name The mode name, case insensitive, e.g. "fast"
+   * @return The mode, or the default one of the app if no name is given
+   * @throws IllegalArgumentException If there is no mode with that name
+   */
+  public static CompressionMode fromName(@Nullable String name) {
+    if (name == null || name.trim().isEmpty()) {
+      return ExportSettings.getCompressionMode();
+    }
+
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("The compression mode [" + name + "] does not exist.");
+    }
+  }
+}
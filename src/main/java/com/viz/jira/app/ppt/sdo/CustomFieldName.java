@@ -1,5 +1,9 @@
 package com.viz.jira.app.ppt.sdo;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class CustomFieldName {
 
   public static final String STATUS_FLAG2 = "Status-Flag2";
@@ -10,6 +14,10 @@ public class CustomFieldName {
   public static final String COMMENT_BLOCK = "Comment Block";
   public static final String MILESTONES = "Milestones";
 
+  /* Every field name the app reads, in no particular order */
+  public static final List<String> ALL = Collections.unmodifiableList(Arrays.asList(
+      STATUS_FLAG2, PXT_SUMMARY, CONTACT, CTA, SW_LEAD, COMMENT_BLOCK, MILESTONES));
+
   private CustomFieldName() {
     // Util class
   }
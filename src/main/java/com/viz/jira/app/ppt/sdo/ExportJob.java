@@ -0,0 +1,86 @@
+package com.viz.jira.app.ppt.sdo;
+
+import javax.annotation.Nullable;
+
+/**
+ * An asynchronous PPT export. The job is created in {@link ExportJobStatus#QUEUED} state and
+ * updated by the worker thread that generates the PPT.
+ */
+public class ExportJob {
+
+  private final String id;
+  private final String userKey;
+  private final String fileName;
+
+  private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+  private volatile byte[] result;
+  private volatile String errorMessage;
+  private volatile long finishedAt;
+
+  public ExportJob(String id, String userKey, String fileName) {
+    this.id = id;
+    this.userKey = userKey;
+    this.fileName = fileName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserKey() {
+    return userKey;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public ExportJobStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * @return The generated PPTX data, or null if the job is not done (or has already expired)
+   */
+  @Nullable
+  public byte[] getResult() {
+    return result;
+  }
+
+  @Nullable
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  /**
+   * @return The time the job has finished in milliseconds, or 0 if it is not finished yet
+   */
+  public long getFinishedAt() {
+    return finishedAt;
+  }
+
+  public void markRunning() {
+    status = ExportJobStatus.RUNNING;
+  }
+
+  public void markDone(byte[] data) {
+    result = data;
+    finishedAt = System.currentTimeMillis();
+    status = ExportJobStatus.DONE;
+  }
+
+  /**
+   * Drop the result of a done job. The job is still known until it expires, so the client can
+   * tell it apart from a job that never existed.
+   */
+  public void markExpired() {
+    result = null;
+    status = ExportJobStatus.EXPIRED;
+  }
+
+  public void markFailed(String message) {
+    errorMessage = message;
+    finishedAt = System.currentTimeMillis();
+    status = ExportJobStatus.FAILED;
+  }
+}
@@ -0,0 +1,10 @@
+package com.viz.jira.app.ppt.sdo;
+
+public enum ExportJobStatus {
+  QUEUED,
+  RUNNING,
+  DONE,
+  FAILED,
+  /* Done, but the result has been dropped to make room for newer ones */
+  EXPIRED
+}
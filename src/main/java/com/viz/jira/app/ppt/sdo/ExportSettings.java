@@ -0,0 +1,134 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tuning knobs of the app. Each one can be overridden with a JVM system property, e.g.
+ * {@code -Dppt-generator.deck-cache.max-bytes=134217728} in setenv.sh.
+ */
+public class ExportSettings {
+
+  private static final String PREFIX = "ppt-generator.";
+
+  /**
+   * @return The byte budget of the generated deck cache (off-heap)
+   */
+  public static long getDeckCacheMaxBytes() {
+    return Long.getLong(PREFIX + "deck-cache.max-bytes", 64L * 1024 * 1024);
+  }
+
+  /**
+   * @return How many milestones of an issue are exported at most, over its first slide and its
+   * continuation slides. The rest of the "Milestones" table is not even read. A negative value
+   * exports none.
+   */
+  public static int getMaxMilestoneRows() {
+    return Math.max(0, Integer.getInteger(PREFIX + "milestones.max-rows", 200));
+  }
+
+  /**
+   * @return The byte budget of the cache of the last written slides of each issue
+   */
+  public static long getSlideCacheMaxBytes() {
+    return Long.getLong(PREFIX + "slide-cache.max-bytes", 16L * 1024 * 1024);
+  }
+
+  /**
+   * @return The byte budget of the rendered preview cache (PNG and PDF)
+   */
+  public static long getPreviewCacheMaxBytes() {
+    return Long.getLong(PREFIX + "preview-cache.max-bytes", 32L * 1024 * 1024);
+  }
+
+  /**
+   * @return The byte budget of the finished export job results kept for download (heap), the
+   * oldest ones are dropped first
+   */
+  public static long getJobResultsMaxBytes() {
+    return Long.getLong(PREFIX + "export-jobs.max-result-bytes", 128L * 1024 * 1024);
+  }
+
+  /**
+   * @return The bytes of finished export job results a single user can keep, a user over it can
+   * not submit another job until their results expire
+   */
+  public static long getJobResultsMaxBytesPerUser() {
+    return Long.getLong(PREFIX + "export-jobs.max-result-bytes-per-user", 32L * 1024 * 1024);
+  }
+
+  /**
+   * @return The number of exports a user can start per minute, once the burst is used up
+   */
+  public static int getExportsPerMinute() {
+    return Integer.getInteger(PREFIX + "rate-limit.exports-per-minute", 6);
+  }
+
+  /**
+   * @return The number of exports a user can start at once, after being idle
+   */
+  public static int getExportBurst() {
+    return Integer.getInteger(PREFIX + "rate-limit.burst", 3);
+  }
+
+  /**
+   * @return The number of PPT generations that can run at the same time, for all users
+   */
+  public static int getMaxConcurrentGenerations() {
+    return Integer.getInteger(PREFIX + "concurrency.max-generations",
+        Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  /**
+   * @return The number of PPT generations a single user can run at the same time
+   */
+  public static int getMaxConcurrentGenerationsPerUser() {
+    return Integer.getInteger(PREFIX + "concurrency.max-generations-per-user", 1);
+  }
+
+  /**
+   * @return The keys of the projects whose decks are generated in the background when an issue is
+   * updated, empty (the default) to disable it
+   */
+  public static Set<String> getPregenerationProjectKeys() {
+    String projectKeys = System.getProperty(PREFIX + "pregeneration.projects", "");
+    return Arrays.stream(projectKeys.split(","))
+        .map(String::trim)
+        .filter(key -> !key.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * @return How long (in seconds) an issue must stay unchanged before its deck is generated
+   */
+  public static int getPregenerationDelaySeconds() {
+    return Integer.getInteger(PREFIX + "pregeneration.delay-seconds", 30);
+  }
+
+  /**
+   * @return True if the fields of a single issue are read and rendered concurrently (on virtual
+   * threads when the JVM has them), false to read them one after another
+   */
+  public static boolean isConcurrentFieldCollection() {
+    return Boolean.getBoolean(PREFIX + "collection.concurrent-fields");
+  }
+
+  /**
+   * @return The compression of the exports that do not request one, "default" unless configured
+   * otherwise
+   */
+  public static CompressionMode getCompressionMode() {
+    String name = System.getProperty(PREFIX + "compression", CompressionMode.DEFAULT.name());
+    try {
+      return CompressionMode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return CompressionMode.DEFAULT;
+    }
+  }
+
+  private ExportSettings() {
+    // Util class
+  }
+}
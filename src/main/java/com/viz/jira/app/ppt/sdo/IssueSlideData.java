@@ -0,0 +1,50 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.Builder;
+import lombok.Value;
+import org.jsoup.nodes.Element;
+
+/**
+ * Everything needed to fill one issue slide. It is collected (and the HTML fields rendered)
+ * before any POI object is touched, so it can be built on any thread.
+ */
+@Value
+@Builder
+public class IssueSlideData {
+
+  String issueKey;
+  String summary;
+  String updated;
+  String statusName;
+  String statusCategoryKey;
+  String overallHealth;
+
+  /* Null when the "Contact" field does not exist in the instance */
+  @Nullable
+  String externalOwner;
+  String internalOwners;
+
+  /* Body of the rendered HTML, null when the field does not exist in the instance */
+  @Nullable
+  Element pxtSummary;
+
+  /* The rendered HTML, not parsed: it is streamed into the slide. Null when the field does not
+   * exist in the instance */
+  @Nullable
+  String commentBlockHtml;
+
+  /* The cell texts of the rows of the first table of the rendered "Milestones" field, without the
+   * header row and at most the milestone row cap. Empty if there is no table. */
+  List<List<String>> milestoneRows;
+
+  /* The text of the custom fields bound in the template, by field name */
+  Map<String, String> customFieldValues;
+
+  /* A hash of every value above but the Updated, the Status and the Overall Health. Two issues
+   * with the same hash give the same slide, except for these values, which can be patched into a
+   * slide filled before. */
+  String contentHash;
+}
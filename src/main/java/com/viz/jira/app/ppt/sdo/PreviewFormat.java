@@ -0,0 +1,42 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * The image formats a filled slide can be rendered to, for the previews in the browser.
+ */
+public enum PreviewFormat {
+
+  /* The first slide of the issue only */
+  PNG("image/png"),
+  /* One page per slide, continuation slides included */
+  PDF("application/pdf");
+
+  private final String mediaType;
+
+  PreviewFormat(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * @param name The format name, case insensitive, e.g. "png"
+   * @return The format, PNG if no name is given
+   * @throws IllegalArgumentException If there is no format with that name
+   */
+  public static PreviewFormat fromName(@Nullable String name) {
+    if (name == null || name.trim().isEmpty()) {
+      return PNG;
+    }
+
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("The preview format [" + name + "] does not exist.");
+    }
+  }
+}
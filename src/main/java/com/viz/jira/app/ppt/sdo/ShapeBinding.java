@@ -0,0 +1,21 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The bound cells of one table of the template slide. The table is found by its index in the
+ * shape list of the slide, which is the same in every copy of the template.
+ */
+@Value
+@Builder
+public class ShapeBinding {
+
+  int shapeIndex;
+  String shapeName;
+  List<CellBinding> cells;
+
+  /* False if the table is dropped from the continuation slides */
+  boolean repeatedOnContinuation;
+}
@@ -1,12 +0,0 @@
-package com.viz.jira.app.ppt.sdo;
-
-public class ShapeName {
-
-  public static final String TOP_TABLE = "Top Table";
-  public static final String LEFT_TABLE = "Left Table";
-  public static final String RIGHT_TABLE = "Right Table";
-
-  private ShapeName() {
-    // Util class
-  }
-}
@@ -0,0 +1,22 @@
+package com.viz.jira.app.ppt.sdo;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The compiled bindings of the template slide: what to write into which cell. It is built once
+ * when the template is loaded and is immutable, an export only runs it.
+ */
+@Value
+@Builder
+public class TemplatePlan {
+
+  List<ShapeBinding> shapes;
+
+  /* The custom fields of the CUSTOM_FIELD bindings, to collect with the issue data */
+  List<String> customFieldNames;
+
+  /* Number of milestones that fit in the bound table, MAX_VALUE if there is no such binding */
+  int milestoneRowsPerSlide;
+}
@@ -0,0 +1,128 @@
+package com.viz.jira.app.ppt.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import javax.annotation.Nullable;
+
+/**
+ * A least recently used cache within a budget of bytes, shared by the caches of the app. The least
+ * recently used entries are evicted until the new one fits. An entry bigger than the entry limit is
+ * not kept at all, it would evict most of the cache for one value.
+ *
+ * <p>Thread-safe. The hits, misses and evictions are counted for the cache statistics.
+ */
+final class ByteBudgetLruCache<K, V> {
+
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final ToLongFunction<V> sizeOf;
+
+  /* Access ordered, the eldest entry is the least recently used one. Guarded by "this". */
+  private final LinkedHashMap<K, V> cache = new LinkedHashMap<>(64, 0.75f, true);
+  private long cachedBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param maxBytes The budget of the whole cache
+   * @param maxEntryBytes The size above which an entry is not kept
+   * @param sizeOf The size of a value, in bytes
+   */
+  ByteBudgetLruCache(long maxBytes, long maxEntryBytes, ToLongFunction<V> sizeOf) {
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = maxEntryBytes;
+    this.sizeOf = sizeOf;
+  }
+
+  /**
+   * @return The cached value, or null. It is counted as a hit or a miss.
+   */
+  @Nullable
+  V get(K key) {
+    V value = peek(key);
+    if (value == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return value;
+  }
+
+  /**
+   * @return The cached value, or null. Unlike {@link #get(Object)}, the statistics are not updated.
+   */
+  @Nullable
+  synchronized V peek(K key) {
+    return cache.get(key);
+  }
+
+  synchronized boolean contains(K key) {
+    return cache.containsKey(key);
+  }
+
+  /**
+   * @return False if the value is too big to be kept
+   */
+  synchronized boolean put(K key, V value) {
+    long size = sizeOf.applyAsLong(value);
+    if (!fits(size)) {
+      return false;
+    }
+
+    V previous = cache.put(key, value);
+    if (previous != null) {
+      cachedBytes -= sizeOf.applyAsLong(previous);
+    }
+    cachedBytes += size;
+
+    Iterator<Entry<K, V>> eldest = cache.entrySet().iterator();
+    while (cachedBytes > maxBytes && eldest.hasNext()) {
+      cachedBytes -= sizeOf.applyAsLong(eldest.next().getValue());
+      eldest.remove();
+      evictions.incrementAndGet();
+    }
+    return true;
+  }
+
+  /**
+   * @return True if an entry of this size can be kept, e.g. before making a copy of the data
+   */
+  boolean fits(long size) {
+    return size <= maxEntryBytes;
+  }
+
+  /**
+   * Count a value served without {@link #get(Object)}, e.g. shared by a running generation.
+   */
+  void recordHit() {
+    hits.incrementAndGet();
+  }
+
+  /**
+   * Count a value that could not be looked up, e.g. one that is not cacheable.
+   */
+  void recordMiss() {
+    misses.incrementAndGet();
+  }
+
+  long getHitCount() {
+    return hits.get();
+  }
+
+  long getMissCount() {
+    return misses.get();
+  }
+
+  long getEvictionCount() {
+    return evictions.get();
+  }
+
+  synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+}
@@ -0,0 +1,48 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.service.StreamingDeckWriter.SlidePart;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The slides of an issue as they were written into its last deck, continuation slides included,
+ * with the content hash of the data they were filled with.
+ */
+public final class CachedSlides {
+
+  private final String contentHash;
+  private final boolean overallHealthFilled;
+  private final List<SlidePart> slideParts;
+  private final int size;
+
+  /**
+   * @param contentHash The content hash of the issue slide data
+   * @param overallHealthFilled True if the Overall Health cell got a fill color
+   * @param slideParts The written slides, they only refer to parts of the template
+   */
+  CachedSlides(String contentHash, boolean overallHealthFilled, List<SlidePart> slideParts) {
+    this.contentHash = contentHash;
+    this.overallHealthFilled = overallHealthFilled;
+    this.slideParts = Collections.unmodifiableList(slideParts);
+    this.size = slideParts.stream().mapToInt(SlidePart::getSize).sum();
+  }
+
+  String getContentHash() {
+    return contentHash;
+  }
+
+  boolean isOverallHealthFilled() {
+    return overallHealthFilled;
+  }
+
+  List<SlidePart> getSlideParts() {
+    return slideParts;
+  }
+
+  /**
+   * @return The number of bytes held by the slides
+   */
+  int getSize() {
+    return size;
+  }
+}
@@ -0,0 +1,111 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import com.viz.jira.app.ppt.service.PackageZipWriter.ZipPart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+
+/**
+ * One loaded template: the PPTX data, its compiled bindings and its hash. It never changes, a
+ * reloaded template is a new instance, so an export keeps a consistent template from start to end.
+ */
+public final class CompiledTemplate {
+
+  private final String name;
+  private final String hash;
+  private final TemplatePlan plan;
+
+  /* The template re-packed as a zip with STORED (not deflated) entries. Opening a copy from it
+   * skips the file lookup and the inflate step, only the XML parsing is left. */
+  private final byte[] bytes;
+
+  /* The parts compressed for each compression mode, built by the first deck written in the mode.
+   * Every later deck copies them as they are. */
+  private final Map<CompressionMode, Map<String, ZipPart>> compressedParts =
+      new ConcurrentHashMap<>();
+
+  CompiledTemplate(String name, String hash, TemplatePlan plan, byte[] bytes) {
+    this.name = name;
+    this.hash = hash;
+    this.plan = plan;
+    this.bytes = bytes;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return A short hash of the template content and bindings
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  public TemplatePlan getPlan() {
+    return plan;
+  }
+
+  /**
+   * Open an independent copy of the template. The caller owns the returned slide show and is
+   * responsible for closing it.
+   *
+   * @return A new slide show built from the template
+   * @throws IOException If the template could not be parsed
+   */
+  public XMLSlideShow open() throws IOException {
+    return new XMLSlideShow(new ByteArrayInputStream(bytes));
+  }
+
+  /**
+   * Read the raw parts of the template, e.g. to copy them into a deck written part by part.
+   *
+   * @return The data of each part, by zip entry name, in the order of the zip
+   */
+  Map<String, byte[]> readParts() throws IOException {
+    Map<String, byte[]> parts = new LinkedHashMap<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          parts.put(entry.getName(), IOUtils.toByteArray(zip));
+        }
+      }
+    }
+    return parts;
+  }
+
+  /**
+   * @return The parts of the template compressed with the level of the mode, by zip entry name
+   */
+  Map<String, ZipPart> getCompressedParts(CompressionMode compression) throws IOException {
+    Map<String, ZipPart> parts = compressedParts.get(compression);
+    if (parts != null) {
+      return parts;
+    }
+
+    // Two first decks may compress the parts at the same time, one of the results is kept
+    Map<String, ZipPart> compressed = new LinkedHashMap<>();
+    for (Entry<String, byte[]> part : readParts().entrySet()) {
+      compressed.put(part.getKey(),
+          ZipPart.compress(part.getKey(), part.getValue(), compression.getLevel()));
+    }
+    parts = compressedParts.putIfAbsent(compression, Collections.unmodifiableMap(compressed));
+    return parts != null ? parts : compressedParts.get(compression);
+  }
+
+  int getSize() {
+    return bytes.length;
+  }
+}
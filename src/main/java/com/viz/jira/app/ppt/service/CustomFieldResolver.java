@@ -0,0 +1,22 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.fields.CustomField;
+import javax.annotation.Nullable;
+
+public interface CustomFieldResolver {
+
+  /**
+   * Get the first custom field with the given name. The lookup result is cached, so this is cheap
+   * to call for every export.
+   *
+   * @param fieldName One of the {@link com.viz.jira.app.ppt.sdo.CustomFieldName} constants
+   * @return The custom field, or null if there is no field with that name in the instance
+   */
+  @Nullable
+  CustomField getFirstCustomFieldByName(String fieldName);
+
+  /**
+   * Forget every cached lookup, the next call will ask Jira again.
+   */
+  void invalidate();
+}
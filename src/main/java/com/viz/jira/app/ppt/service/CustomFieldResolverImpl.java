@@ -0,0 +1,135 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.issue.field.CustomFieldCreatedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldDeletedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldUpdatedEvent;
+import com.atlassian.jira.issue.CustomFieldManager;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.sdo.CustomFieldName;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CustomFieldResolverImpl implements CustomFieldResolver, InitializingBean,
+    DisposableBean {
+
+  /* The custom field events cover the changes made through Jira, the TTL covers the rest (e.g. a
+   * field renamed directly in the database, or an event missed during a plugin reload). */
+  private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final Logger log = LoggerFactory.getLogger(CustomFieldResolverImpl.class);
+
+  private final CustomFieldManager customFieldManager;
+  private final EventPublisher eventPublisher;
+
+  private final Map<String, ResolvedField> fields = new ConcurrentHashMap<>();
+
+  @Autowired
+  public CustomFieldResolverImpl(@ComponentImport CustomFieldManager customFieldManager,
+      @ComponentImport EventPublisher eventPublisher) {
+    this.customFieldManager = customFieldManager;
+    this.eventPublisher = eventPublisher;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    eventPublisher.register(this);
+
+    // Warm the cache, so the first export does not pay for the lookups
+    try {
+      CustomFieldName.ALL.forEach(this::getFirstCustomFieldByName);
+    } catch (RuntimeException e) {
+      log.warn("Could not warm the custom field cache, the fields will be resolved on demand.", e);
+      invalidate();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    eventPublisher.unregister(this);
+    invalidate();
+  }
+
+  @Nullable
+  @Override
+  public CustomField getFirstCustomFieldByName(String fieldName) {
+    ResolvedField resolvedField = fields.get(fieldName);
+    if (resolvedField == null || resolvedField.isExpired()) {
+      resolvedField = new ResolvedField(resolve(fieldName));
+      fields.put(fieldName, resolvedField);
+    }
+    return resolvedField.field;
+  }
+
+  @Override
+  public void invalidate() {
+    fields.clear();
+  }
+
+  @EventListener
+  public void onCustomFieldCreated(CustomFieldCreatedEvent event) {
+    onCustomFieldChanged();
+  }
+
+  @EventListener
+  public void onCustomFieldUpdated(CustomFieldUpdatedEvent event) {
+    onCustomFieldChanged();
+  }
+
+  @EventListener
+  public void onCustomFieldDeleted(CustomFieldDeletedEvent event) {
+    onCustomFieldChanged();
+  }
+
+  private void onCustomFieldChanged() {
+    /* A created or renamed field can shadow (or replace) a field we have already resolved, so the
+     * whole cache is dropped. It only holds a handful of entries. */
+    log.debug("A custom field has changed. The custom field cache is invalidated.");
+    invalidate();
+  }
+
+  @Nullable
+  private CustomField resolve(String fieldName) {
+    Collection<CustomField> candidates = customFieldManager.getCustomFieldObjectsByName(fieldName);
+
+    if (candidates.isEmpty()) {
+      log.warn("There is no field with name [{}] in the instance.", fieldName);
+      return null;
+    }
+
+    // Inform the users about field with the same name
+    if (candidates.size() > 1) {
+      log.warn("Found {} fields with the same name [{}] in the instance. "
+          + "Will select the first field.", candidates.size(), fieldName);
+    }
+
+    return candidates.iterator().next();
+  }
+
+  private static class ResolvedField {
+
+    /* Null when the field does not exist, that result is cached as well */
+    private final CustomField field;
+    private final long resolvedAt = System.currentTimeMillis();
+
+    private ResolvedField(@Nullable CustomField field) {
+      this.field = field;
+    }
+
+    private boolean isExpired() {
+      return System.currentTimeMillis() - resolvedAt > TTL_MILLIS;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+public interface DeckCacheService {
+
+  /**
+   * Build the cache key of the issue PPT. It changes whenever the issue is updated, the template
+   * changes or another compression is requested, so it can also be used as the HTTP ETag of the
+   * PPT. Each viewer has their own key: the rendered fields depend on what they can see.
+   *
+   * @param issue The exported issue
+   * @param viewer The user the PPT is generated for
+   * @param template The template the PPT is generated from
+   * @param compression The compression of the PPT
+   * @return The cache key
+   */
+  String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      CompressionMode compression);
+
+  /**
+   * @return A read-only view of the cached PPTX data, or null if it is not cached
+   */
+  @Nullable
+  ByteBuffer get(String cacheKey);
+
+  void put(String cacheKey, byte[] data);
+
+  /**
+   * @return True if the deck is cached. Unlike {@link #get(String)}, the statistics are not
+   * updated.
+   */
+  boolean contains(String cacheKey);
+
+  /**
+   * Write the deck to the output. If the same deck, of the same viewer, is already being
+   * generated for another request, wait for it and write its data. Otherwise this request leads:
+   * generate it while writing it, then cache it and share it with the requests that arrived in
+   * the meantime.
+   *
+   * @param cacheKey The cache key of the deck
+   * @param generator Writes the deck, only called for the leading request, e.g. to take the
+   * generation permit only there
+   * @param out The stream to write the PPTX data to, it is not closed
+   * @throws IOException If the deck could not be generated or written
+   * @throws ExportLimitExceededException If the generator of the leading request was refused by
+   * the export limits, before writing anything
+   */
+  void write(String cacheKey, DeckGenerator generator, OutputStream out) throws IOException;
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  long getCachedBytes();
+
+  @FunctionalInterface
+  interface DeckGenerator {
+
+    void generate(OutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,242 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.metrics.CacheStats;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps generated decks off-heap (direct buffers), so a large cache does not add to the pressure
+ * on the Jira heap. The wiki renderer shows the linked issues and the mentions depending on the
+ * viewer's permissions, so the decks are cached per viewer, like the rendered HTML.
+ *
+ * <p>The requests for a deck that is being generated wait for that generation instead of starting
+ * their own. Since the decks are per viewer, this only covers the requests of one user, e.g. a
+ * double click, a retry after a timeout or an export during the pre-generation of the deck. The
+ * users of a meeting who export the same issue each get their own generation.
+ */
+@Service
+public class DeckCacheServiceImpl implements DeckCacheService, InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(DeckCacheServiceImpl.class);
+
+  private final ExportMetricsService exportMetricsService;
+  private final ByteBudgetLruCache<String, ByteBuffer> cache;
+
+  /* The running generations, their future completes with the deck data */
+  private final Map<String, CompletableFuture<byte[]>> generations = new ConcurrentHashMap<>();
+
+  @Autowired
+  public DeckCacheServiceImpl(ExportMetricsService exportMetricsService) {
+    this.exportMetricsService = exportMetricsService;
+    long maxBytes = ExportSettings.getDeckCacheMaxBytes();
+    this.cache = new ByteBudgetLruCache<>(maxBytes, maxBytes / 4, ByteBuffer::capacity);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    exportMetricsService.registerCache("DeckCache", new CacheStats(this::getHitCount,
+        this::getMissCount, this::getEvictionCount, this::getCachedBytes));
+  }
+
+  @Override
+  public String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      CompressionMode compression) {
+    // The user id, unlike the user key, is safe in an ETag
+    return issue.getKey() + "-" + issue.getUpdated().getTime() + "-u" + viewer.getId() + "-"
+        + template.getHash() + "-" + compression.name().toLowerCase(Locale.ROOT);
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer get(String cacheKey) {
+    return readOnly(cache.get(cacheKey));
+  }
+
+  @Override
+  public void put(String cacheKey, byte[] data) {
+    // Checked before the data is copied off-heap
+    if (!cache.fits(data.length)) {
+      log.debug("The PPT [{}] is too big to be cached ({} bytes).", cacheKey, data.length);
+      return;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data);
+    buffer.flip();
+    cache.put(cacheKey, buffer);
+  }
+
+  @Override
+  public boolean contains(String cacheKey) {
+    return cache.contains(cacheKey);
+  }
+
+  @Override
+  public void write(String cacheKey, DeckGenerator generator, OutputStream out)
+      throws IOException {
+    /* The caller has missed the cache already, but the generation may have finished since then.
+     * The miss is not counted twice. */
+    ByteBuffer cached = readOnly(cache.peek(cacheKey));
+    if (cached != null) {
+      cache.recordHit();
+      writeBuffer(cached, out);
+      return;
+    }
+
+    CompletableFuture<byte[]> generation = new CompletableFuture<>();
+    CompletableFuture<byte[]> running = generations.putIfAbsent(cacheKey, generation);
+    if (running != null) {
+      log.info("The PPT [{}] is being generated, waiting for it.", cacheKey);
+      out.write(await(cacheKey, running));
+      // Served without generating, like a cache hit
+      cache.recordHit();
+      return;
+    }
+
+    try {
+      TeeOutputStream teeOutput = new TeeOutputStream(out);
+      generator.generate(teeOutput);
+      byte[] data = teeOutput.toByteArray();
+
+      // Cached before the generation is removed, so a late request finds one or the other
+      put(cacheKey, data);
+      generation.complete(data);
+      teeOutput.rethrowClientError();
+    } catch (IOException | RuntimeException e) {
+      generation.completeExceptionally(e);
+      throw e;
+    } finally {
+      generations.remove(cacheKey, generation);
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  public long getCachedBytes() {
+    return cache.getCachedBytes();
+  }
+
+  @Nullable
+  private static ByteBuffer readOnly(@Nullable ByteBuffer buffer) {
+    // Every reader gets its own position and limit
+    return buffer != null ? buffer.asReadOnlyBuffer() : null;
+  }
+
+  private static byte[] await(String cacheKey, CompletableFuture<byte[]> generation)
+      throws IOException {
+    try {
+      return generation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the PPT " + cacheKey);
+    } catch (ExecutionException e) {
+      // The waiting requests are refused like the one they waited for
+      if (e.getCause() instanceof ExportLimitExceededException) {
+        throw (ExportLimitExceededException) e.getCause();
+      }
+      throw new IOException("The generation of the PPT " + cacheKey + " failed.", e.getCause());
+    }
+  }
+
+  private static void writeBuffer(ByteBuffer buffer, OutputStream out) throws IOException {
+    WritableByteChannel channel = Channels.newChannel(out);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Copies everything written to the response into a buffer, so the finished PPT can be cached and
+   * shared. If the client goes away, the generation goes on for the waiting requests and the
+   * error is only reported at the end.
+   */
+  private static class TeeOutputStream extends FilterOutputStream {
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    private IOException clientError;
+
+    private TeeOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (clientError == null) {
+        try {
+          out.write(b);
+        } catch (IOException e) {
+          clientError = e;
+        }
+      }
+      copy.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (clientError == null) {
+        try {
+          out.write(b, off, len);
+        } catch (IOException e) {
+          clientError = e;
+        }
+      }
+      copy.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (clientError == null) {
+        try {
+          out.flush();
+        } catch (IOException e) {
+          clientError = e;
+        }
+      }
+    }
+
+    private byte[] toByteArray() {
+      return copy.toByteArray();
+    }
+
+    private void rethrowClientError() throws IOException {
+      if (clientError != null) {
+        throw clientError;
+      }
+    }
+  }
+}
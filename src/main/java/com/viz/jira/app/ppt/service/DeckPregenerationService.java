@@ -0,0 +1,34 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+
+/**
+ * Generates the decks of the configured projects in the background when their issues are updated,
+ * so the next export is served from the deck cache. The decks are cached per viewer, so they are
+ * generated for the users who recently exported the issue, each one as themselves.
+ */
+public interface DeckPregenerationService {
+
+  /**
+   * @return True if the decks of the project are generated in the background
+   */
+  boolean isEnabled(String projectKey);
+
+  /**
+   * Remember that the user has exported the issue, so its deck is generated for them after the next
+   * updates. Only the last few viewers of an issue are kept.
+   *
+   * @param issue The exported issue
+   * @param viewer The user who exported it
+   */
+  void recordExport(Issue issue, ApplicationUser viewer);
+
+  /**
+   * Generate the deck of the issue with its default template for its recent viewers, once the
+   * issue has not been changed for a while. A burst of edits gives a single generation per viewer.
+   *
+   * @param issue The updated issue
+   */
+  void schedule(Issue issue);
+}
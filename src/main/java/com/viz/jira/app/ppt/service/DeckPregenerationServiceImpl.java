@@ -0,0 +1,297 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.issue.IssueEvent;
+import com.atlassian.jira.event.type.EventType;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.security.PermissionManager;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class DeckPregenerationServiceImpl implements DeckPregenerationService, InitializingBean,
+    DisposableBean {
+
+  /* A single low priority thread, the background work must never slow down the Jira node */
+  private static final int WORKER_THREADS = 1;
+  private static final int QUEUE_LIMIT = 100;
+
+  /* The viewers each deck is generated for, a few per issue for the most recent issues */
+  private static final int MAX_VIEWERS_PER_ISSUE = 5;
+  private static final int MAX_TRACKED_ISSUES = 1000;
+
+  /* The generated deck goes to the deck cache only */
+  private static final OutputStream DISCARD_OUTPUT = new OutputStream() {
+    @Override
+    public void write(int b) {
+      // Discarded
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      // Discarded
+    }
+  };
+
+  private static final Logger log = LoggerFactory.getLogger(DeckPregenerationServiceImpl.class);
+
+  private final EventPublisher eventPublisher;
+  private final IssueManager issueManager;
+  private final JiraAuthenticationContext authContext;
+  private final PermissionManager permissionManager;
+  private final TemplateService templateService;
+  private final DeckCacheService deckCacheService;
+  private final PPTGenerationService pptGenerationService;
+
+  private final Set<String> projectKeys;
+  private final long delaySeconds;
+
+  /* The debounced generations by issue id, a new edit replaces the pending one */
+  private final Map<Long, ScheduledFuture<?>> pendingGenerations = new ConcurrentHashMap<>();
+
+  /* The recent viewers by issue id, then by user id, the eldest first. Guarded by "this". */
+  private final Map<Long, Map<Long, ApplicationUser>> recentViewers =
+      new LinkedHashMap<Long, Map<Long, ApplicationUser>>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<Long, Map<Long, ApplicationUser>> eldest) {
+          return size() > MAX_TRACKED_ISSUES;
+        }
+      };
+
+  private final ScheduledExecutorService debounceExecutor;
+  private final ThreadPoolExecutor workerExecutor;
+
+  @Autowired
+  public DeckPregenerationServiceImpl(@ComponentImport EventPublisher eventPublisher,
+      @ComponentImport IssueManager issueManager,
+      @ComponentImport JiraAuthenticationContext authContext,
+      @ComponentImport PermissionManager permissionManager,
+      TemplateService templateService,
+      DeckCacheService deckCacheService,
+      PPTGenerationService pptGenerationService) {
+    this.eventPublisher = eventPublisher;
+    this.issueManager = issueManager;
+    this.authContext = authContext;
+    this.permissionManager = permissionManager;
+    this.templateService = templateService;
+    this.deckCacheService = deckCacheService;
+    this.pptGenerationService = pptGenerationService;
+
+    this.projectKeys = ExportSettings.getPregenerationProjectKeys();
+    this.delaySeconds = Math.max(1, ExportSettings.getPregenerationDelaySeconds());
+
+    this.debounceExecutor = Executors.newSingleThreadScheduledExecutor(
+        new NamedThreadFactory("ppt-generator-pregeneration-timer"));
+    /* A full queue drops the generation, the deck is then generated on the first export */
+    this.workerExecutor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS,
+        60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_LIMIT),
+        new NamedThreadFactory("ppt-generator-pregeneration", Thread.MIN_PRIORITY),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (projectKeys.isEmpty()) {
+      log.info("The decks are only generated on export, no project is configured for the "
+          + "pre-generation.");
+      return;
+    }
+    eventPublisher.register(this);
+    log.info("The decks of the projects {} are generated when their issues are updated.",
+        projectKeys);
+  }
+
+  @Override
+  public void destroy() {
+    if (!projectKeys.isEmpty()) {
+      eventPublisher.unregister(this);
+    }
+    debounceExecutor.shutdownNow();
+    workerExecutor.shutdownNow();
+    pendingGenerations.clear();
+    synchronized (this) {
+      recentViewers.clear();
+    }
+  }
+
+  @Override
+  public boolean isEnabled(String projectKey) {
+    return projectKeys.contains(projectKey);
+  }
+
+  @Override
+  public void recordExport(Issue issue, ApplicationUser viewer) {
+    if (issue.getProjectObject() == null || !isEnabled(issue.getProjectObject().getKey())) {
+      return;
+    }
+
+    synchronized (this) {
+      Map<Long, ApplicationUser> viewers =
+          recentViewers.computeIfAbsent(issue.getId(), id -> new LinkedHashMap<>());
+      // Moved to the end, the most recent viewer
+      viewers.remove(viewer.getId());
+      viewers.put(viewer.getId(), viewer);
+      if (viewers.size() > MAX_VIEWERS_PER_ISSUE) {
+        viewers.remove(viewers.keySet().iterator().next());
+      }
+    }
+  }
+
+  @Override
+  public void schedule(Issue issue) {
+    Long issueId = issue.getId();
+    synchronized (this) {
+      if (!recentViewers.containsKey(issueId)) {
+        log.debug("The issue [{}] has not been exported lately, its deck is not pre-generated.",
+            issue.getKey());
+        return;
+      }
+    }
+
+    pendingGenerations.compute(issueId, (id, pending) -> {
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      return debounceExecutor.schedule(() -> submit(id), delaySeconds, TimeUnit.SECONDS);
+    });
+  }
+
+  @EventListener
+  public void onIssueEvent(IssueEvent event) {
+    Issue issue = event.getIssue();
+    if (issue == null || issue.getProjectObject() == null
+        || !isEnabled(issue.getProjectObject().getKey())) {
+      return;
+    }
+
+    if (EventType.ISSUE_DELETED_ID.equals(event.getEventTypeId())) {
+      ScheduledFuture<?> pending = pendingGenerations.remove(issue.getId());
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      synchronized (this) {
+        recentViewers.remove(issue.getId());
+      }
+      return;
+    }
+
+    try {
+      schedule(issue);
+    } catch (RejectedExecutionException e) {
+      // Only when the app is being disabled
+      log.debug("The deck of issue [{}] is not pre-generated.", issue.getKey(), e);
+    }
+  }
+
+  private void submit(Long issueId) {
+    pendingGenerations.remove(issueId);
+    try {
+      workerExecutor.execute(() -> generate(issueId));
+    } catch (RejectedExecutionException e) {
+      log.warn("The pre-generation queue is full. The deck of issue [{}] is generated on the "
+          + "next export.", issueId);
+    }
+  }
+
+  private void generate(Long issueId) {
+    List<ApplicationUser> viewers;
+    synchronized (this) {
+      Map<Long, ApplicationUser> issueViewers = recentViewers.get(issueId);
+      if (issueViewers == null) {
+        return;
+      }
+      viewers = new ArrayList<>(issueViewers.values());
+    }
+
+    try {
+      // Load the issue again, the one of the event is outdated after the debounce
+      Issue issue = issueManager.getIssueObject(issueId);
+      if (issue == null) {
+        return;
+      }
+
+      CompiledTemplate template = templateService.selectTemplate(issue, null);
+      // The exports that do not ask for a compression use the default one
+      CompressionMode compression = ExportSettings.getCompressionMode();
+      for (ApplicationUser viewer : viewers) {
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+        generate(issue, viewer, template, compression);
+      }
+    } catch (Exception e) {
+      String message = String.format("Error while pre-generating the PPT of issue [%s]",
+          issueId);
+      log.error(message, e);
+    }
+  }
+
+  /**
+   * Generate the deck as the viewer, what they can see of the rendered fields, into their own
+   * cache entry.
+   */
+  private void generate(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      CompressionMode compression) {
+    // The viewer may have lost the permission since their export
+    if (!viewer.isActive() || !permissionManager.hasPermission(
+        ProjectPermissions.BROWSE_PROJECTS, issue, viewer)) {
+      synchronized (this) {
+        Map<Long, ApplicationUser> issueViewers = recentViewers.get(issue.getId());
+        if (issueViewers != null) {
+          issueViewers.remove(viewer.getId());
+        }
+      }
+      return;
+    }
+
+    String cacheKey = deckCacheService.getCacheKey(issue, viewer, template, compression);
+    if (deckCacheService.contains(cacheKey)) {
+      return;
+    }
+
+    ApplicationUser previousUser = authContext.getLoggedInUser();
+    authContext.setLoggedInUser(viewer);
+    try {
+      log.info("Pre-generating the PPT of issue [{}] for user [{}]...", issue.getKey(),
+          viewer.getUsername());
+      /* An export of the issue requested in the meantime waits for this generation instead of
+       * starting its own */
+      deckCacheService.write(cacheKey,
+          out -> pptGenerationService.generatePPT(issue, template, compression, out),
+          DISCARD_OUTPUT);
+    } catch (Exception e) {
+      String message = String.format("Error while pre-generating the PPT of issue [%s] for "
+          + "user [%s]", issue.getKey(), viewer.getUsername());
+      log.error(message, e);
+    } finally {
+      authContext.setLoggedInUser(previousUser);
+    }
+  }
+}
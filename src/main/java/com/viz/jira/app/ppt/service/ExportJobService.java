@@ -0,0 +1,39 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.ExportJob;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nullable;
+
+public interface ExportJobService {
+
+  /**
+   * Queue the PPT generation of the issues. One issue gives a single-slide PPT, more issues give
+   * one slide per issue.
+   *
+   * @param user The user requesting the export, the PPT is generated on their behalf
+   * @param issues The issues to export
+   * @param template The template to generate the PPT from
+   * @param compression How hard the PPTX is compressed
+   * @param fileName The file name of the generated PPT
+   * @return The queued job
+   * @throws RejectedExecutionException If the export queue is full
+   */
+  ExportJob submit(ApplicationUser user, List<Issue> issues, CompiledTemplate template,
+      CompressionMode compression, String fileName);
+
+  /**
+   * @return The job, or null if it does not exist or has expired
+   */
+  @Nullable
+  ExportJob getJob(String jobId);
+
+  /**
+   * @return How long (in seconds) a client should wait before submitting again when the queue is
+   * full
+   */
+  int getRetryAfterSeconds();
+}
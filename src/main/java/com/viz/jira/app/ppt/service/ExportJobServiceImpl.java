@@ -0,0 +1,210 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.ExportJob;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExportJobServiceImpl implements ExportJobService, DisposableBean {
+
+  /* The generation is CPU bound, a small pool keeps the exports from starving the Jira node */
+  private static final int WORKER_THREADS =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+  private static final int QUEUE_LIMIT = 50;
+  private static final long RESULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+  private static final long CLEANUP_INTERVAL_MINUTES = 1;
+  private static final int RETRY_AFTER_SECONDS = 30;
+
+  private static final Logger log = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+  private final JiraAuthenticationContext authContext;
+  private final PPTGenerationService pptGenerationService;
+
+  private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+  /* The finished jobs holding a result, oldest first, and the bytes they hold in total and per
+   * user. Guarded by "this". */
+  private final LinkedHashMap<String, ExportJob> results = new LinkedHashMap<>();
+  private final Map<String, Long> userResultBytes = new HashMap<>();
+  private long resultBytes;
+  private final long maxResultBytes;
+  private final long maxResultBytesPerUser;
+
+  private final ThreadPoolExecutor workerExecutor;
+  private final ScheduledExecutorService cleanupExecutor;
+
+  @Autowired
+  public ExportJobServiceImpl(@ComponentImport JiraAuthenticationContext authContext,
+      PPTGenerationService pptGenerationService) {
+    this.authContext = authContext;
+    this.pptGenerationService = pptGenerationService;
+    this.maxResultBytes = ExportSettings.getJobResultsMaxBytes();
+    this.maxResultBytesPerUser = ExportSettings.getJobResultsMaxBytesPerUser();
+
+    /* A full queue rejects the job, the controller turns it into a 429 for the client */
+    this.workerExecutor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS,
+        60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_LIMIT),
+        new NamedThreadFactory("ppt-generator-export-job"),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(
+        new NamedThreadFactory("ppt-generator-export-job-cleanup"));
+    this.cleanupExecutor.scheduleWithFixedDelay(this::removeExpiredJobs,
+        CLEANUP_INTERVAL_MINUTES, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void destroy() {
+    workerExecutor.shutdownNow();
+    cleanupExecutor.shutdownNow();
+    jobs.clear();
+    synchronized (this) {
+      results.clear();
+      userResultBytes.clear();
+      resultBytes = 0;
+    }
+  }
+
+  @Override
+  public ExportJob submit(ApplicationUser user, List<Issue> issues, CompiledTemplate template,
+      CompressionMode compression, String fileName) {
+    /* Every result is kept in the heap until it expires, a user must not be able to fill it by
+     * submitting big exports in a loop */
+    if (getUserResultBytes(user.getKey()) >= maxResultBytesPerUser) {
+      log.warn("PPT EXPORT WARNING: User [{}] holds too many export results. The export job is "
+          + "rejected.", user.getUsername());
+      throw new RejectedExecutionException("Too many export results for user "
+          + user.getUsername());
+    }
+
+    ExportJob job = new ExportJob(UUID.randomUUID().toString(), user.getKey(), fileName);
+    jobs.put(job.getId(), job);
+
+    try {
+      workerExecutor.execute(() -> runJob(job, user, issues, template, compression));
+    } catch (RejectedExecutionException e) {
+      jobs.remove(job.getId());
+      log.warn("The export queue is full. The export job of user [{}] is rejected.",
+          user.getUsername());
+      throw e;
+    }
+
+    log.info("Export job [{}] of {} issues has been queued.", job.getId(), issues.size());
+    return job;
+  }
+
+  @Nullable
+  @Override
+  public ExportJob getJob(String jobId) {
+    return jobs.get(jobId);
+  }
+
+  @Override
+  public int getRetryAfterSeconds() {
+    return RETRY_AFTER_SECONDS;
+  }
+
+  private void runJob(ExportJob job, ApplicationUser user, List<Issue> issues,
+      CompiledTemplate template, CompressionMode compression) {
+    job.markRunning();
+    log.info("Export job [{}] started.", job.getId());
+
+    // The PPT must be generated on behalf of the user who submitted the job
+    ApplicationUser previousUser = authContext.getLoggedInUser();
+    authContext.setLoggedInUser(user);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      if (issues.size() == 1) {
+        pptGenerationService.generatePPT(issues.get(0), template, compression, out);
+      } else {
+        pptGenerationService.generatePPT(issues, template, compression, out);
+      }
+      keepResult(job, out.toByteArray());
+    } catch (Exception e) {
+      String message = String.format("Error while running the export job [%s]", job.getId());
+      log.error(message, e);
+      job.markFailed(e.getMessage());
+    } finally {
+      authContext.setLoggedInUser(previousUser);
+    }
+  }
+
+  /**
+   * Mark the job done with its result, within the byte budget: the oldest results are dropped to
+   * make room for it, their jobs are expired. A result bigger than the whole budget fails the job.
+   */
+  private synchronized void keepResult(ExportJob job, byte[] data) {
+    if (data.length > maxResultBytes) {
+      log.warn("The result of export job [{}] is too big to be kept ({} bytes).", job.getId(),
+          data.length);
+      job.markFailed("The PPT is too big, export fewer issues at once.");
+      return;
+    }
+
+    Iterator<ExportJob> oldest = results.values().iterator();
+    while (resultBytes + data.length > maxResultBytes && oldest.hasNext()) {
+      ExportJob oldestJob = oldest.next();
+      oldest.remove();
+      releaseResult(oldestJob);
+      oldestJob.markExpired();
+      log.info("The result of export job [{}] has been dropped to make room.", oldestJob.getId());
+    }
+
+    job.markDone(data);
+    results.put(job.getId(), job);
+    resultBytes += data.length;
+    userResultBytes.merge(job.getUserKey(), (long) data.length, Long::sum);
+    log.info("Export job [{}] is done.", job.getId());
+  }
+
+  private synchronized long getUserResultBytes(String userKey) {
+    return userResultBytes.getOrDefault(userKey, 0L);
+  }
+
+  /* Guarded by "this" */
+  private void releaseResult(ExportJob job) {
+    long size = job.getResult() != null ? job.getResult().length : 0;
+    resultBytes -= size;
+    userResultBytes.computeIfPresent(job.getUserKey(),
+        (userKey, bytes) -> bytes > size ? bytes - size : null);
+  }
+
+  private void removeExpiredJobs() {
+    long expiredBefore = System.currentTimeMillis() - RESULT_TTL_MILLIS;
+    synchronized (this) {
+      Iterator<ExportJob> oldest = results.values().iterator();
+      while (oldest.hasNext()) {
+        ExportJob job = oldest.next();
+        if (job.getFinishedAt() >= expiredBefore) {
+          break;
+        }
+        oldest.remove();
+        releaseResult(job);
+      }
+    }
+    jobs.values().removeIf(job -> job.getFinishedAt() > 0 && job.getFinishedAt() < expiredBefore);
+  }
+}
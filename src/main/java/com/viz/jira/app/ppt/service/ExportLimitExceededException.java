@@ -0,0 +1,22 @@
+package com.viz.jira.app.ppt.service;
+
+/**
+ * Thrown when an export is refused by the rate or concurrency limits. The controller turns it into
+ * a 429 with a Retry-After header.
+ */
+public class ExportLimitExceededException extends RuntimeException {
+
+  private final int retryAfterSeconds;
+
+  public ExportLimitExceededException(String message, int retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * @return How long (in seconds) the client should wait before trying again
+   */
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
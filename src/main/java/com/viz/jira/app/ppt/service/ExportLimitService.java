@@ -0,0 +1,38 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protects the Jira node from a user (or a script) starting too many exports: every export request
+ * takes a token from the user's bucket, and every PPT generation needs a permit, of which there
+ * are a few per user and a few for the whole node.
+ */
+public interface ExportLimitService {
+
+  /**
+   * Take one token from the rate limit bucket of the user.
+   *
+   * @throws ExportLimitExceededException If the user has no token left
+   */
+  void consumeToken(ApplicationUser user);
+
+  /**
+   * Reserve a generation slot for the user. The returned permit must be closed once the PPT is
+   * written, whatever the outcome.
+   *
+   * @return The permit of the generation
+   * @throws ExportLimitExceededException If the user or the node already runs the maximum number of
+   * generations
+   */
+  ExportPermit acquireGeneration(ApplicationUser user);
+
+  /**
+   * Like {@link #acquireGeneration(ApplicationUser)}, but wait for a slot to free up, e.g. for the
+   * previews of an issue panel, which are all requested at once.
+   *
+   * @return The permit of the generation
+   * @throws ExportLimitExceededException If no slot has freed up in time
+   */
+  ExportPermit acquireGeneration(ApplicationUser user, long timeout, TimeUnit unit);
+}
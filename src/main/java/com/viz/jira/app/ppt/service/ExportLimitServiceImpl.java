@@ -0,0 +1,179 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.metrics.ExportLimits;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExportLimitServiceImpl implements ExportLimitService, InitializingBean {
+
+  /* Above this number of buckets, the idle (full) ones are dropped, they are created again on the
+   * next request of their user */
+  private static final int MAX_TRACKED_USERS = 1000;
+
+  /* A generation usually takes seconds, there is no way to know when a slot frees up */
+  private static final int CONCURRENCY_RETRY_AFTER_SECONDS = 10;
+
+  private static final Logger log = LoggerFactory.getLogger(ExportLimitServiceImpl.class);
+
+  private final ExportMetricsService exportMetricsService;
+  private final double tokensPerNano;
+  private final int burst;
+  private final int maxGenerationsPerUser;
+  private final Semaphore generationPermits;
+  private final ExportLimits exportLimits;
+
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+  /* The generation slots of each user, the node-wide ones are in generationPermits */
+  private final Map<String, Semaphore> userPermits = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ExportLimitServiceImpl(ExportMetricsService exportMetricsService) {
+    this.exportMetricsService = exportMetricsService;
+    this.tokensPerNano =
+        Math.max(1, ExportSettings.getExportsPerMinute()) / (double) TimeUnit.MINUTES.toNanos(1);
+    this.burst = Math.max(1, ExportSettings.getExportBurst());
+    this.maxGenerationsPerUser = Math.max(1, ExportSettings.getMaxConcurrentGenerationsPerUser());
+
+    int maxGenerations = Math.max(1, ExportSettings.getMaxConcurrentGenerations());
+    this.generationPermits = new Semaphore(maxGenerations);
+    this.exportLimits = new ExportLimits(generationPermits::availablePermits, maxGenerations,
+        buckets::size);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    exportMetricsService.registerLimits(exportLimits);
+  }
+
+  @Override
+  public void consumeToken(ApplicationUser user) {
+    long now = System.nanoTime();
+    if (buckets.size() > MAX_TRACKED_USERS) {
+      buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    TokenBucket bucket = buckets.computeIfAbsent(user.getKey(), key -> new TokenBucket(now));
+    long waitNanos = bucket.tryConsume(now);
+    if (waitNanos > 0) {
+      exportLimits.rateLimited();
+      log.warn("PPT EXPORT WARNING: User [{}] exceeded the export rate limit.",
+          user.getUsername());
+      int retryAfterSeconds = (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+      throw new ExportLimitExceededException("Too many exports for user " + user.getUsername(),
+          retryAfterSeconds);
+    }
+  }
+
+  @Override
+  public ExportPermit acquireGeneration(ApplicationUser user) {
+    Semaphore userPermit = getUserPermit(user);
+    if (!userPermit.tryAcquire()) {
+      throw concurrencyLimited(user, "User " + user.getUsername()
+          + " already runs the maximum number of exports");
+    }
+    if (!generationPermits.tryAcquire()) {
+      userPermit.release();
+      throw concurrencyLimited(user, "The maximum number of exports is running");
+    }
+    return newPermit(userPermit);
+  }
+
+  @Override
+  public ExportPermit acquireGeneration(ApplicationUser user, long timeout, TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Semaphore userPermit = getUserPermit(user);
+    try {
+      if (!userPermit.tryAcquire(timeout, unit)) {
+        throw concurrencyLimited(user, "User " + user.getUsername()
+            + " already runs the maximum number of exports");
+      }
+    } catch (InterruptedException e) {
+      throw interrupted();
+    }
+
+    try {
+      if (!generationPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        userPermit.release();
+        throw concurrencyLimited(user, "The maximum number of exports is running");
+      }
+    } catch (InterruptedException e) {
+      userPermit.release();
+      throw interrupted();
+    }
+    return newPermit(userPermit);
+  }
+
+  /* One semaphore per user who has ever exported, that is bounded by the number of users */
+  private Semaphore getUserPermit(ApplicationUser user) {
+    return userPermits.computeIfAbsent(user.getKey(), key -> new Semaphore(maxGenerationsPerUser));
+  }
+
+  private ExportPermit newPermit(Semaphore userPermit) {
+    return new ExportPermit(() -> {
+      generationPermits.release();
+      userPermit.release();
+    });
+  }
+
+  private ExportLimitExceededException concurrencyLimited(ApplicationUser user, String message) {
+    exportLimits.concurrencyLimited();
+    log.warn("PPT EXPORT WARNING: {}. The export of user [{}] is rejected.", message,
+        user.getUsername());
+    return new ExportLimitExceededException(message, CONCURRENCY_RETRY_AFTER_SECONDS);
+  }
+
+  private static ExportLimitExceededException interrupted() {
+    Thread.currentThread().interrupt();
+    return new ExportLimitExceededException("Interrupted while waiting for an export slot",
+        CONCURRENCY_RETRY_AFTER_SECONDS);
+  }
+
+  /**
+   * Refills continuously at the configured rate, up to the burst size. A new bucket is full.
+   */
+  private final class TokenBucket {
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    private TokenBucket(long nowNanos) {
+      this.tokens = burst;
+      this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * @return 0 if a token has been taken, otherwise the time (in nanoseconds) until the next one
+     */
+    private synchronized long tryConsume(long nowNanos) {
+      refill(nowNanos);
+      if (tokens >= 1) {
+        tokens--;
+        return 0;
+      }
+      return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private synchronized boolean isFull(long nowNanos) {
+      refill(nowNanos);
+      return tokens >= burst;
+    }
+
+    private void refill(long nowNanos) {
+      // Another thread may have refilled with a later time already
+      if (nowNanos > lastRefillNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = nowNanos;
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.metrics.CacheStatsMBean;
+import com.viz.jira.app.ppt.metrics.ExportLimitsMBean;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+
+/**
+ * Timings and counters of the exports, published as JMX MBeans under the
+ * "com.viz.jira.app.ppt" domain.
+ */
+public interface ExportMetricsService {
+
+  /**
+   * @return The start time to pass to {@link #recordStage(ExportStage, long)}
+   */
+  long startTimer();
+
+  void recordStage(ExportStage stage, long startNanos);
+
+  void exportStarted();
+
+  void exportSucceeded(long outputBytes);
+
+  void exportFailed();
+
+  /**
+   * Publish the statistics of a cache as "com.viz.jira.app.ppt:type=Caches,name=[name]".
+   */
+  void registerCache(String name, CacheStatsMBean cacheStats);
+
+  /**
+   * Publish the rate and concurrency limits as "com.viz.jira.app.ppt:type=Limits".
+   */
+  void registerLimits(ExportLimitsMBean exportLimits);
+}
@@ -0,0 +1,112 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.metrics.CacheStatsMBean;
+import com.viz.jira.app.ppt.metrics.ExportCounters;
+import com.viz.jira.app.ppt.metrics.ExportLimitsMBean;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+import com.viz.jira.app.ppt.metrics.StageTimer;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExportMetricsServiceImpl implements ExportMetricsService, InitializingBean,
+    DisposableBean {
+
+  private static final String JMX_DOMAIN = "com.viz.jira.app.ppt";
+
+  private static final Logger log = LoggerFactory.getLogger(ExportMetricsServiceImpl.class);
+
+  private final Map<ExportStage, StageTimer> stageTimers = new EnumMap<>(ExportStage.class);
+  private final ExportCounters exportCounters = new ExportCounters();
+  private final Set<ObjectName> registeredNames = ConcurrentHashMap.newKeySet();
+
+  public ExportMetricsServiceImpl() {
+    for (ExportStage stage : ExportStage.values()) {
+      stageTimers.put(stage, new StageTimer());
+    }
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    register("type=Exports", exportCounters);
+    for (Entry<ExportStage, StageTimer> stageTimer : stageTimers.entrySet()) {
+      register("type=Stages,name=" + stageTimer.getKey().getMBeanName(), stageTimer.getValue());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ObjectName name : registeredNames) {
+      try {
+        server.unregisterMBean(name);
+      } catch (JMException e) {
+        log.warn("Could not unregister the MBean [{}]", name, e);
+      }
+    }
+    registeredNames.clear();
+  }
+
+  @Override
+  public long startTimer() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void recordStage(ExportStage stage, long startNanos) {
+    stageTimers.get(stage).record(System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public void exportStarted() {
+    exportCounters.started();
+  }
+
+  @Override
+  public void exportSucceeded(long outputBytes) {
+    exportCounters.succeeded(outputBytes);
+  }
+
+  @Override
+  public void exportFailed() {
+    exportCounters.failed();
+  }
+
+  @Override
+  public void registerCache(String name, CacheStatsMBean cacheStats) {
+    register("type=Caches,name=" + name, cacheStats);
+  }
+
+  @Override
+  public void registerLimits(ExportLimitsMBean exportLimits) {
+    register("type=Limits", exportLimits);
+  }
+
+  private void register(String properties, Object mBean) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(JMX_DOMAIN + ":" + properties);
+      // Left over by a previous version of the plugin that has not been cleanly disabled
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(mBean, name);
+      registeredNames.add(name);
+    } catch (JMException e) {
+      // The metrics are nice to have, they must never prevent the app from starting
+      log.warn("Could not register the MBean [{}]", properties, e);
+    }
+  }
+}
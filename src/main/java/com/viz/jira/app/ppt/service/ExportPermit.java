@@ -0,0 +1,24 @@
+package com.viz.jira.app.ppt.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A running generation slot. It must be closed once the PPT has been written, closing it again
+ * does nothing.
+ */
+public final class ExportPermit implements AutoCloseable {
+
+  private final Runnable release;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  ExportPermit(Runnable release) {
+    this.release = release;
+  }
+
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      release.run();
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.service.HtmlTokenizer.Token;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the text blocks of HTML in a single pass, either over the {@link HtmlTokenizer} tokens of
+ * a fragment (no DOM is built) or over an already parsed element. Only the text of the block being
+ * read is kept, so the memory used depends on the longest paragraph, not on the size of the HTML.
+ *
+ * <p>Every "p" (or heading) is a plain block and every "li" a bullet block, in document order. The
+ * text of a block is the text of everything inside it, with the whitespace collapsed like Jsoup's
+ * {@code Element.text()}. "body", "div" and the lists are containers, anything else is skipped with
+ * a warning. The tags that are not closed are closed the way an HTML parser does, so both ways of
+ * reading the same HTML give the same blocks.
+ */
+final class HtmlBlockReader {
+
+  private static final Logger log = LoggerFactory.getLogger(HtmlBlockReader.class);
+
+  private final BlockHandler handler;
+
+  /* The open containers, innermost first */
+  private final Deque<String> containers = new ArrayDeque<>();
+
+  /* The text block being collected, null when we are at container level */
+  private String blockTag;
+  private boolean bulletBlock;
+  private final StringBuilder blockText = new StringBuilder();
+
+  /* The open elements inside the block, innermost first */
+  private final Deque<String> inBlock = new ArrayDeque<>();
+
+  /* The open elements of the one being skipped, innermost first, empty when nothing is skipped */
+  private final Deque<String> skipped = new ArrayDeque<>();
+
+  private HtmlBlockReader(BlockHandler handler) {
+    this.handler = handler;
+  }
+
+  static void read(String html, BlockHandler handler) {
+    HtmlBlockReader reader = new HtmlBlockReader(handler);
+    HtmlTokenizer tokenizer = new HtmlTokenizer(html);
+    Token token;
+    while ((token = tokenizer.next()) != Token.EOF) {
+      switch (token) {
+        case START_TAG:
+          reader.onStartTag(tokenizer.tagName(), tokenizer.isSelfClosing());
+          break;
+        case END_TAG:
+          reader.onEndTag(tokenizer.tagName());
+          break;
+        case TEXT:
+          reader.onText(tokenizer.text());
+          break;
+        default:
+          break;
+      }
+    }
+    reader.finish();
+  }
+
+  static void read(Element element, BlockHandler handler) {
+    HtmlBlockReader reader = new HtmlBlockReader(handler);
+    NodeTraversor.traverse(new NodeVisitor() {
+      @Override
+      public void head(Node node, int depth) {
+        if (node instanceof Element) {
+          Element child = (Element) node;
+          reader.onStartTag(child.normalName(), child.tag().isSelfClosing());
+        } else if (node instanceof TextNode) {
+          reader.onText(((TextNode) node).getWholeText());
+        }
+      }
+
+      @Override
+      public void tail(Node node, int depth) {
+        if (node instanceof Element && !((Element) node).tag().isSelfClosing()) {
+          reader.onEndTag(((Element) node).normalName());
+        }
+      }
+    }, element);
+    reader.finish();
+  }
+
+  private void finish() {
+    if (blockTag != null) {
+      flushBlock();
+    }
+  }
+
+  private void onText(String text) {
+    if (blockTag != null && skipped.isEmpty()) {
+      blockText.append(text);
+    }
+  }
+
+  private void onStartTag(String tag, boolean selfClosing) {
+    if (!skipped.isEmpty()) {
+      if (!selfClosing) {
+        skipped.push(tag);
+      }
+      return;
+    }
+
+    if (blockTag != null) {
+      if (!endsBlock(tag)) {
+        // An element inside the block, e.g. "b" or "a". Its text belongs to the block.
+        if (isBlockLevel(tag) || "br".equals(tag)) {
+          blockText.append(' ');
+        }
+        if (!selfClosing) {
+          inBlock.push(tag);
+        }
+        return;
+      }
+      flushBlock();
+    }
+
+    if (selfClosing) {
+      return;
+    }
+
+    if (isContainer(tag)) {
+      containers.push(tag);
+      return;
+    }
+
+    if (isTextBlock(tag)) {
+      blockTag = tag;
+      bulletBlock = "li".equals(tag);
+      return;
+    }
+
+    if (!"head".equals(tag)) {
+      log.warn("The HTML tag name [{}] is not yet handled to write into PPT.", tag);
+    }
+    skipped.push(tag);
+  }
+
+  private void onEndTag(String tag) {
+    if (!skipped.isEmpty()) {
+      if (skipped.contains(tag)) {
+        // The elements left open in this one end with it, e.g. the cells of a table
+        while (!tag.equals(skipped.pop())) {
+          // Keep closing
+        }
+        return;
+      }
+      if (!containers.contains(tag)) {
+        return;
+      }
+      // The end of a container closes the skipped element that is left open in it
+      skipped.clear();
+    }
+
+    if (blockTag != null) {
+      if (inBlock.contains(tag)) {
+        // The elements left open in this one end with it
+        while (!tag.equals(inBlock.pop())) {
+          // Keep closing
+        }
+        if (isBlockLevel(tag)) {
+          blockText.append(' ');
+        }
+        return;
+      }
+      if (!tag.equals(blockTag) && !containers.contains(tag)) {
+        // An end tag without its start tag
+        return;
+      }
+      // The end of the block itself, or of its parent when the block is not closed
+      flushBlock();
+      if (tag.equals(blockTag)) {
+        return;
+      }
+    } else if ("p".equals(tag)) {
+      // A "p" end tag without a "p" gives an empty paragraph, as in an HTML parser
+      handler.block("", false);
+      return;
+    }
+
+    if (containers.contains(tag)) {
+      while (!tag.equals(containers.pop())) {
+        // The containers left open in this one end with it
+      }
+    }
+  }
+
+  /**
+   * @return True if the start tag implicitly closes the current block, e.g. "p" in "p" or a
+   * sibling "li"
+   */
+  private boolean endsBlock(String tag) {
+    if ("li".equals(blockTag)) {
+      // Unless it is in a nested list
+      return "li".equals(tag) && !inBlock.contains("ul") && !inBlock.contains("ol");
+    }
+    return isBlockLevel(tag);
+  }
+
+  private void flushBlock() {
+    handler.block(HtmlTokenizer.normalizeWhitespace(blockText), bulletBlock);
+    blockTag = null;
+    blockText.setLength(0);
+    inBlock.clear();
+  }
+
+  private static boolean isContainer(String tag) {
+    switch (tag) {
+      case "html":
+      case "body":
+      case "div":
+      case "section":
+      case "article":
+      case "ul":
+      case "ol":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isTextBlock(String tag) {
+    switch (tag) {
+      case "p":
+      case "li":
+      case "h1":
+      case "h2":
+      case "h3":
+      case "h4":
+      case "h5":
+      case "h6":
+      case "blockquote":
+      case "pre":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isBlockLevel(String tag) {
+    switch (tag) {
+      case "table":
+      case "tr":
+      case "td":
+      case "th":
+      case "hr":
+      case "dl":
+      case "dt":
+      case "dd":
+        return true;
+      default:
+        return isTextBlock(tag) || isContainer(tag);
+    }
+  }
+
+  /**
+   * Receives the blocks in document order.
+   */
+  @FunctionalInterface
+  interface BlockHandler {
+
+    /**
+     * @param text The text of the block, without markup
+     * @param bullet True for a list item
+     */
+    void block(String text, boolean bullet);
+  }
+}
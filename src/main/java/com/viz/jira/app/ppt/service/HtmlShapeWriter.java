@@ -0,0 +1,111 @@
+package com.viz.jira.app.ppt.service;
+
+import org.apache.poi.xslf.usermodel.XSLFTextParagraph;
+import org.apache.poi.xslf.usermodel.XSLFTextRun;
+import org.apache.poi.xslf.usermodel.XSLFTextShape;
+import org.jsoup.nodes.Element;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTRegularTextRun;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTextCharacterProperties;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTextParagraph;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTextParagraphProperties;
+
+/**
+ * Writes HTML into a text shape, one paragraph per block read by {@link HtmlBlockReader}: every
+ * "p" (or heading) becomes a plain paragraph and every "li" a bullet point, in document order. The
+ * first paragraph of the shape is reused, and its properties are copied once to be the prototype of
+ * the appended paragraphs, which are written straight into the XML.
+ */
+final class HtmlShapeWriter {
+
+  private final XSLFTextShape textShape;
+  private final CTTextParagraph firstParagraph;
+  private final CTTextParagraphProperties prototypeParagraphProperties;
+  private final CTTextCharacterProperties prototypeRunProperties;
+  private boolean firstParagraphUsed;
+
+  HtmlShapeWriter(XSLFTextShape textShape) {
+    /* We expect each TextShape has already one Paragraph with TextRuns. The TextRuns have
+     * pre-defined Format (Font, Font Size, Bullet style,...) for reuse. */
+    this.textShape = textShape;
+    this.firstParagraph = textShape.getTextParagraphs().get(0).getXmlObject();
+
+    this.prototypeParagraphProperties = firstParagraph.isSetPPr()
+        ? (CTTextParagraphProperties) firstParagraph.getPPr().copy()
+        : null;
+    if (firstParagraph.sizeOfRArray() > 0 && firstParagraph.getRArray(0).isSetRPr()) {
+      this.prototypeRunProperties =
+          (CTTextCharacterProperties) firstParagraph.getRArray(0).getRPr().copy();
+    } else if (firstParagraph.isSetEndParaRPr()) {
+      this.prototypeRunProperties =
+          (CTTextCharacterProperties) firstParagraph.getEndParaRPr().copy();
+    } else {
+      this.prototypeRunProperties = null;
+    }
+
+    // Make sure that the paragraph has only one text run before writing data
+    while (firstParagraph.sizeOfRArray() > 1) {
+      firstParagraph.removeR(1);
+    }
+    while (firstParagraph.sizeOfBrArray() > 0) {
+      firstParagraph.removeBr(0);
+    }
+    while (firstParagraph.sizeOfFldArray() > 0) {
+      firstParagraph.removeFld(0);
+    }
+  }
+
+  void write(String html) {
+    HtmlBlockReader.read(html, this::writeParagraph);
+    finish();
+  }
+
+  void write(Element element) {
+    HtmlBlockReader.read(element, this::writeParagraph);
+    finish();
+  }
+
+  private void finish() {
+    // Nothing to write, the placeholder text of the template must not stay in the slide
+    if (!firstParagraphUsed) {
+      writeFirstParagraph("", true);
+    }
+  }
+
+  private void writeParagraph(String text, boolean bullet) {
+    if (firstParagraphUsed) {
+      appendParagraph(text, bullet);
+    } else {
+      writeFirstParagraph(text, bullet);
+    }
+  }
+
+  private void writeFirstParagraph(String text, boolean bullet) {
+    CTRegularTextRun run = firstParagraph.sizeOfRArray() > 0
+        ? firstParagraph.getRArray(0)
+        : firstParagraph.addNewR();
+    run.setT(text);
+    if (!bullet) {
+      /* This paragraph could be pre-defined as the bullet list. Now make it as the normal para. */
+      textShape.getTextParagraphs().get(0).setBullet(false);
+    }
+    firstParagraphUsed = true;
+  }
+
+  private void appendParagraph(String text, boolean bullet) {
+    XSLFTextParagraph paragraph = textShape.addNewTextParagraph();
+    if (prototypeParagraphProperties != null) {
+      paragraph.getXmlObject().setPPr(prototypeParagraphProperties);
+    }
+
+    XSLFTextRun textRun = paragraph.addNewTextRun();
+    CTRegularTextRun run = (CTRegularTextRun) textRun.getXmlObject();
+    if (prototypeRunProperties != null) {
+      run.setRPr(prototypeRunProperties);
+    }
+    run.setT(text);
+
+    if (!bullet) {
+      paragraph.setBullet(false);
+    }
+  }
+}
@@ -6,4 +6,13 @@ import org.jsoup.nodes.Element;
 public interface HtmlToPptService {
 
   void writeHtmlToTextShape(Element element, XSLFTextShape textShape);
+
+  /**
+   * Write the rendered HTML into the text shape in a single pass, without parsing it into a DOM
+   * first. Paragraphs and list items are written in document order.
+   *
+   * @param html The HTML fragment, e.g. the rendered value of a wiki markup field
+   * @param textShape The shape to write into, its first paragraph gives the format
+   */
+  void writeHtmlToTextShape(String html, XSLFTextShape textShape);
 }
@@ -0,0 +1,206 @@
+package com.viz.jira.app.ppt.service;
+
+import java.util.Locale;
+import org.jsoup.parser.Parser;
+
+/**
+ * A minimal pull tokenizer for the HTML produced by the Jira wiki renderer. It reads the input
+ * once, from left to right, and never builds a tree: the caller keeps whatever state it needs.
+ * Comments, doctypes and processing instructions are skipped, and so is the content of "script"
+ * and "style" elements.
+ */
+final class HtmlTokenizer {
+
+  enum Token {
+    START_TAG,
+    END_TAG,
+    TEXT,
+    EOF
+  }
+
+  private final String html;
+  private int position;
+
+  private String tagName;
+  private boolean selfClosing;
+  private String text;
+
+  HtmlTokenizer(String html) {
+    this.html = html;
+  }
+
+  /**
+   * @return The name (lower case) of the current start or end tag
+   */
+  String tagName() {
+    return tagName;
+  }
+
+  /**
+   * @return True if the current start tag has no content and no end tag will follow (e.g. "br")
+   */
+  boolean isSelfClosing() {
+    return selfClosing;
+  }
+
+  /**
+   * @return The current text, with the HTML entities decoded
+   */
+  String text() {
+    return text;
+  }
+
+  Token next() {
+    while (position < html.length()) {
+      if (html.charAt(position) != '<' || !isMarkupStart(position)) {
+        return readText();
+      }
+
+      char next = html.charAt(position + 1);
+      if (next == '!' || next == '?') {
+        skipDeclaration();
+      } else if (next == '/') {
+        return readEndTag();
+      } else {
+        return readStartTag();
+      }
+    }
+    return Token.EOF;
+  }
+
+  private boolean isMarkupStart(int index) {
+    if (index + 1 >= html.length()) {
+      return false;
+    }
+    char next = html.charAt(index + 1);
+    return Character.isLetter(next) || next == '/' || next == '!' || next == '?';
+  }
+
+  private Token readText() {
+    int start = position;
+    position++;
+    while (position < html.length()
+        && !(html.charAt(position) == '<' && isMarkupStart(position))) {
+      position++;
+    }
+    text = Parser.unescapeEntities(html.substring(start, position), false);
+    return Token.TEXT;
+  }
+
+  private void skipDeclaration() {
+    if (html.startsWith("<!--", position)) {
+      int end = html.indexOf("-->", position + 4);
+      position = end < 0 ? html.length() : end + 3;
+    } else {
+      int end = html.indexOf('>', position);
+      position = end < 0 ? html.length() : end + 1;
+    }
+  }
+
+  private Token readEndTag() {
+    position += 2;
+    tagName = readTagName();
+    int end = html.indexOf('>', position);
+    position = end < 0 ? html.length() : end + 1;
+    return Token.END_TAG;
+  }
+
+  private Token readStartTag() {
+    position++;
+    tagName = readTagName();
+    selfClosing = isVoidElement(tagName);
+
+    // Skip the attributes, a quoted value may contain ">"
+    char quote = 0;
+    char previous = 0;
+    while (position < html.length()) {
+      char c = html.charAt(position++);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        selfClosing |= previous == '/';
+        break;
+      }
+      previous = c;
+    }
+
+    if (!selfClosing && isRawTextElement(tagName)) {
+      skipRawText();
+      selfClosing = true;
+    }
+    return Token.START_TAG;
+  }
+
+  private String readTagName() {
+    int start = position;
+    while (position < html.length()) {
+      char c = html.charAt(position);
+      if (!Character.isLetterOrDigit(c) && c != '-' && c != ':') {
+        break;
+      }
+      position++;
+    }
+    return html.substring(start, position).toLowerCase(Locale.ROOT);
+  }
+
+  private void skipRawText() {
+    String endTag = "</" + tagName;
+    while (position < html.length()) {
+      if (html.regionMatches(true, position, endTag, 0, endTag.length())) {
+        int end = html.indexOf('>', position);
+        position = end < 0 ? html.length() : end + 1;
+        return;
+      }
+      position++;
+    }
+  }
+
+  /**
+   * Collapse the whitespace the same way Jsoup's {@code Element.text()} does.
+   */
+  static String normalizeWhitespace(CharSequence text) {
+    StringBuilder normalized = new StringBuilder(text.length());
+    boolean pendingSpace = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isWhitespace(c) || c == '\u00a0') {
+        pendingSpace = normalized.length() > 0;
+      } else {
+        if (pendingSpace) {
+          normalized.append(' ');
+          pendingSpace = false;
+        }
+        normalized.append(c);
+      }
+    }
+    return normalized.toString();
+  }
+
+  private static boolean isVoidElement(String tagName) {
+    switch (tagName) {
+      case "br":
+      case "hr":
+      case "img":
+      case "input":
+      case "meta":
+      case "link":
+      case "col":
+      case "wbr":
+      case "area":
+      case "base":
+      case "embed":
+      case "source":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isRawTextElement(String tagName) {
+    return "script".equals(tagName) || "style".equals(tagName);
+  }
+}
@@ -0,0 +1,129 @@
+package com.viz.jira.app.ppt.service;
+
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+
+/**
+ * Writes rendered slides as a PDF with one page per image. Each image is embedded as a JPEG
+ * (DCTDecode), scaled to the page size, so the PDF is a picture of the slides: good enough for a
+ * preview, and it needs no PDF library.
+ */
+final class ImagePdfWriter {
+
+  private final OutputStream out;
+  private final List<Long> objectOffsets = new ArrayList<>();
+  private long position;
+
+  private ImagePdfWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * @param images The rendered slides, in page order
+   * @param pageSize The size of a page, in points (the page size of the slide show)
+   * @param out The stream to write the PDF to, it is not closed
+   */
+  static void write(List<BufferedImage> images, Dimension2D pageSize, OutputStream out)
+      throws IOException {
+    new ImagePdfWriter(out).writeDocument(images, pageSize);
+  }
+
+  private void writeDocument(List<BufferedImage> images, Dimension2D pageSize)
+      throws IOException {
+    String width = format(pageSize.getWidth());
+    String height = format(pageSize.getHeight());
+
+    // A binary comment after the header, so the file is not taken for a text file
+    writeAscii("%PDF-1.4\n");
+    writeBytes(new byte[]{'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'});
+
+    /* Object 1 is the catalog, 2 the page tree, then 3 objects per page: the page, its content
+     * and its image */
+    StringBuilder kids = new StringBuilder();
+    for (int i = 0; i < images.size(); i++) {
+      kids.append(3 + i * 3).append(" 0 R ");
+    }
+    writeObject(1, "<< /Type /Catalog /Pages 2 0 R >>");
+    writeObject(2, "<< /Type /Pages /Kids [" + kids.toString().trim() + "] /Count "
+        + images.size() + " >>");
+
+    for (int i = 0; i < images.size(); i++) {
+      int pageId = 3 + i * 3;
+      writeObject(pageId, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + width + " " + height
+          + "] /Resources << /XObject << /Im0 " + (pageId + 2) + " 0 R >> >> /Contents "
+          + (pageId + 1) + " 0 R >>");
+
+      // Draw the image over the whole page
+      byte[] content = ("q " + width + " 0 0 " + height + " 0 0 cm /Im0 Do Q")
+          .getBytes(StandardCharsets.US_ASCII);
+      writeStream(pageId + 1, "<< /Length " + content.length + " >>", content);
+
+      BufferedImage image = images.get(i);
+      byte[] jpeg = toJpeg(image);
+      writeStream(pageId + 2, "<< /Type /XObject /Subtype /Image /Width " + image.getWidth()
+          + " /Height " + image.getHeight() + " /ColorSpace /DeviceRGB /BitsPerComponent 8"
+          + " /Filter /DCTDecode /Length " + jpeg.length + " >>", jpeg);
+    }
+
+    writeTrailer();
+  }
+
+  private void writeObject(int id, String dictionary) throws IOException {
+    startObject(id);
+    writeAscii(dictionary + "\nendobj\n");
+  }
+
+  private void writeStream(int id, String dictionary, byte[] data) throws IOException {
+    startObject(id);
+    writeAscii(dictionary + "\nstream\n");
+    writeBytes(data);
+    writeAscii("\nendstream\nendobj\n");
+  }
+
+  private void startObject(int id) throws IOException {
+    // The objects are written in id order, the offset of object N is at index N - 1
+    objectOffsets.add(position);
+    writeAscii(id + " 0 obj\n");
+  }
+
+  private void writeTrailer() throws IOException {
+    long xrefPosition = position;
+    StringBuilder xref = new StringBuilder("xref\n0 ").append(objectOffsets.size() + 1)
+        .append("\n0000000000 65535 f \n");
+    for (long offset : objectOffsets) {
+      xref.append(String.format(Locale.ROOT, "%010d 00000 n \n", offset));
+    }
+    xref.append("trailer\n<< /Size ").append(objectOffsets.size() + 1)
+        .append(" /Root 1 0 R >>\nstartxref\n").append(xrefPosition).append("\n%%EOF\n");
+    writeAscii(xref.toString());
+  }
+
+  private void writeAscii(String text) throws IOException {
+    writeBytes(text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private void writeBytes(byte[] data) throws IOException {
+    out.write(data);
+    position += data.length;
+  }
+
+  private static byte[] toJpeg(BufferedImage image) throws IOException {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    if (!ImageIO.write(image, "jpeg", jpeg)) {
+      throw new IOException("No JPEG writer is available.");
+    }
+    return jpeg.toByteArray();
+  }
+
+  private static String format(double points) {
+    return String.format(Locale.ROOT, "%.2f", points);
+  }
+}
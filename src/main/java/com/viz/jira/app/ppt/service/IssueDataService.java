@@ -0,0 +1,39 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import java.io.IOException;
+import java.util.List;
+
+public interface IssueDataService {
+
+  /**
+   * Collect the slide data of the issue, including the custom fields bound in the template.
+   *
+   * @param issue The issue to collect data from
+   * @param plan The compiled bindings of the template
+   * @return The slide data
+   * @throws IOException If the fields are collected concurrently and any of them failed
+   */
+  IssueSlideData collect(Issue issue, TemplatePlan plan) throws IOException;
+
+  /**
+   * Collect the slide data of many issues concurrently, and hand it over in the order of the given
+   * issues. Only a few issues are collected ahead of the one being handed over, so the memory used
+   * does not grow with the number of issues.
+   *
+   * @param issues The issues to collect data from
+   * @param plan The compiled bindings of the template
+   * @param consumer Called with the slide data of each issue, on the calling thread
+   * @throws IOException If the data of any issue could not be collected, or the consumer failed
+   */
+  void collect(List<Issue> issues, TemplatePlan plan, SlideDataConsumer consumer)
+      throws IOException;
+
+  @FunctionalInterface
+  interface SlideDataConsumer {
+
+    void accept(IssueSlideData data) throws IOException;
+  }
+}
@@ -0,0 +1,539 @@
+package com.viz.jira.app.ppt.service;
+
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.COMMENT_BLOCK;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.CONTACT;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.CTA;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.MILESTONES;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.PXT_SUMMARY;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.STATUS_FLAG2;
+import static com.viz.jira.app.ppt.sdo.CustomFieldName.SW_LEAD;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.issue.MutableIssue;
+import com.atlassian.jira.issue.customfields.impl.SelectCFType;
+import com.atlassian.jira.issue.customfields.impl.UserCFType;
+import com.atlassian.jira.issue.customfields.option.Option;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.jira.issue.status.Status;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class IssueDataServiceImpl implements IssueDataService, DisposableBean {
+
+  /* Collecting is mostly waiting on the database and the renderer, but it should never take all
+   * the CPUs of the Jira node. */
+  private static final int COLLECTOR_THREADS =
+      Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+  private static final int COLLECTOR_QUEUE_SIZE = 1000;
+  private static final int COLLECTOR_WINDOW = COLLECTOR_THREADS * 2;
+
+  private static final DateTimeFormatter UPDATED_FORMATTER = DateTimeFormatter.ofPattern(
+      "yyyy-MM-dd");
+
+  private static final Logger log = LoggerFactory.getLogger(IssueDataServiceImpl.class);
+
+  private final IssueManager issueManager;
+  private final JiraAuthenticationContext authContext;
+  private final CustomFieldResolver customFieldResolver;
+  private final WikiRenderService wikiRenderService;
+  private final ExportMetricsService exportMetricsService;
+  private final ExecutorService collectorExecutor;
+
+  /* Reads the fields of a single issue concurrently, null when they are read one by one */
+  @Nullable
+  private final ExecutorService fieldExecutor;
+
+  @Autowired
+  public IssueDataServiceImpl(@ComponentImport IssueManager issueManager,
+      @ComponentImport JiraAuthenticationContext authContext,
+      CustomFieldResolver customFieldResolver,
+      WikiRenderService wikiRenderService,
+      ExportMetricsService exportMetricsService) {
+    this.issueManager = issueManager;
+    this.authContext = authContext;
+    this.customFieldResolver = customFieldResolver;
+    this.wikiRenderService = wikiRenderService;
+    this.exportMetricsService = exportMetricsService;
+    /* When the queue is full the caller collects the issue itself, that slows down the request
+     * that floods the pool instead of failing it. */
+    this.collectorExecutor = new ThreadPoolExecutor(COLLECTOR_THREADS, COLLECTOR_THREADS,
+        60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(COLLECTOR_QUEUE_SIZE),
+        new NamedThreadFactory("ppt-generator-collector"),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    this.fieldExecutor = ExportSettings.isConcurrentFieldCollection()
+        ? TaskExecutors.newBlockingTaskExecutor("ppt-generator-field", COLLECTOR_THREADS)
+        : null;
+  }
+
+  @Override
+  public void destroy() {
+    collectorExecutor.shutdownNow();
+    if (fieldExecutor != null) {
+      fieldExecutor.shutdownNow();
+    }
+  }
+
+  @Override
+  public void collect(List<Issue> issues, TemplatePlan plan, SlideDataConsumer consumer)
+      throws IOException {
+    // The workers must render the wiki markup on behalf of the requesting user
+    ApplicationUser user = authContext.getLoggedInUser();
+
+    // One query loads the issues, then each worker reads and renders the fields of one issue
+    List<Issue> loadedIssues = loadIssues(issues);
+    List<String> customFieldNames = plan.getCustomFieldNames();
+    int maxMilestoneRows = getMaxMilestoneRows(plan);
+
+    /* Only a window of issues is rendered ahead of the one being consumed, so at most that many
+     * rendered issues are in memory, whatever the number of exported issues */
+    Deque<Future<IssueSlideData>> window = new ArrayDeque<>(COLLECTOR_WINDOW);
+    int next = 0;
+    try {
+      while (next < loadedIssues.size() || !window.isEmpty()) {
+        while (next < loadedIssues.size() && window.size() < COLLECTOR_WINDOW) {
+          Issue issue = loadedIssues.get(next);
+          window.add(collectorExecutor.submit(
+              () -> callAs(user, () -> collect(issue, customFieldNames, maxMilestoneRows))));
+          next++;
+        }
+        consumer.accept(window.poll().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while collecting the issue data.");
+    } catch (ExecutionException e) {
+      throw new IOException("Error while collecting the issue data.", e.getCause());
+    } finally {
+      window.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private <T> T callAs(ApplicationUser user, Callable<T> task) throws Exception {
+    ApplicationUser previousUser = authContext.getLoggedInUser();
+    authContext.setLoggedInUser(user);
+    try {
+      return task.call();
+    } finally {
+      authContext.setLoggedInUser(previousUser);
+    }
+  }
+
+  @Override
+  public IssueSlideData collect(Issue issue, TemplatePlan plan) throws IOException {
+    if (fieldExecutor != null) {
+      return collectConcurrently(issue, plan, fieldExecutor);
+    }
+
+    return collect(issue, plan.getCustomFieldNames(), getMaxMilestoneRows(plan));
+  }
+
+  private IssueSlideData collect(Issue issue, List<String> customFieldNames,
+      int maxMilestoneRows) {
+    log.debug("Collecting the slide data of issue [{}]...", issue.getKey());
+    long start = exportMetricsService.startTimer();
+    FieldValues values = new FieldValues();
+    values.overallHealth = getOverallHealth(issue);
+    values.externalOwner = getExternalOwner(issue);
+    for (String fieldName : new String[]{CTA, SW_LEAD}) {
+      String userName = getInternalOwner(fieldName, issue);
+      if (userName != null) {
+        values.internalOwners.add(userName);
+      }
+    }
+    for (String fieldName : customFieldNames) {
+      values.customFieldValues.put(fieldName, getCustomFieldText(fieldName, issue));
+    }
+    exportMetricsService.recordStage(ExportStage.FIELD_RESOLUTION, start);
+
+    return buildSlideData(issue, values, getRenderedHtml(PXT_SUMMARY, issue),
+        getRenderedHtml(COMMENT_BLOCK, issue), getMilestoneRows(issue, maxMilestoneRows));
+  }
+
+  /**
+   * Read and render every field of the issue in its own task, so the data is ready when the
+   * slowest field is, instead of after the sum of all of them.
+   */
+  private IssueSlideData collectConcurrently(Issue issue, TemplatePlan plan,
+      ExecutorService executor) throws IOException {
+    log.debug("Collecting the slide data of issue [{}] concurrently...", issue.getKey());
+    // The tasks must read and render the fields on behalf of the requesting user
+    ApplicationUser user = authContext.getLoggedInUser();
+    List<Future<?>> futures = new ArrayList<>();
+
+    try {
+      long start = exportMetricsService.startTimer();
+      Future<String> overallHealth = submitAs(executor, user, futures,
+          () -> getOverallHealth(issue));
+      Future<String> externalOwner = submitAs(executor, user, futures,
+          () -> getExternalOwner(issue));
+      List<Future<String>> internalOwners = new ArrayList<>(2);
+      for (String fieldName : new String[]{CTA, SW_LEAD}) {
+        internalOwners.add(submitAs(executor, user, futures,
+            () -> getInternalOwner(fieldName, issue)));
+      }
+      Map<String, Future<String>> customFieldValues = new LinkedHashMap<>();
+      for (String fieldName : plan.getCustomFieldNames()) {
+        customFieldValues.put(fieldName, submitAs(executor, user, futures,
+            () -> getCustomFieldText(fieldName, issue)));
+      }
+
+      Future<String> pxtSummaryHtml = submitAs(executor, user, futures,
+          () -> getRenderedHtml(PXT_SUMMARY, issue));
+      Future<String> commentBlockHtml = submitAs(executor, user, futures,
+          () -> getRenderedHtml(COMMENT_BLOCK, issue));
+      int maxMilestoneRows = getMaxMilestoneRows(plan);
+      Future<List<List<String>>> milestoneRows = submitAs(executor, user, futures,
+          () -> getMilestoneRows(issue, maxMilestoneRows));
+
+      FieldValues values = new FieldValues();
+      values.overallHealth = overallHealth.get();
+      values.externalOwner = externalOwner.get();
+      for (Future<String> internalOwner : internalOwners) {
+        String userName = internalOwner.get();
+        if (userName != null) {
+          values.internalOwners.add(userName);
+        }
+      }
+      for (Entry<String, Future<String>> customFieldValue : customFieldValues.entrySet()) {
+        values.customFieldValues.put(customFieldValue.getKey(), customFieldValue.getValue().get());
+      }
+      exportMetricsService.recordStage(ExportStage.FIELD_RESOLUTION, start);
+
+      return buildSlideData(issue, values, pxtSummaryHtml.get(), commentBlockHtml.get(),
+          milestoneRows.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while collecting the issue data.");
+    } catch (ExecutionException e) {
+      throw new IOException("Error while collecting the issue data.", e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private <T> Future<T> submitAs(ExecutorService executor, ApplicationUser user,
+      List<Future<?>> futures, Callable<T> task) {
+    Future<T> future = executor.submit(() -> callAs(user, task));
+    futures.add(future);
+    return future;
+  }
+
+  private IssueSlideData buildSlideData(Issue issue, FieldValues values,
+      @Nullable String pxtSummaryHtml, @Nullable String commentBlockHtml,
+      List<List<String>> milestoneRows) {
+    Status status = issue.getStatus();
+
+    return IssueSlideData.builder()
+        .issueKey(issue.getKey())
+        .summary(issue.getSummary())
+        .updated(issue.getUpdated().toLocalDateTime().format(UPDATED_FORMATTER))
+        .statusName(status.getName().toUpperCase())
+        .statusCategoryKey(status.getStatusCategory().getKey())
+        .overallHealth(values.overallHealth)
+        .externalOwner(values.externalOwner)
+        .internalOwners(String.join(", ", values.internalOwners))
+        .pxtSummary(pxtSummaryHtml != null ? parseBody(PXT_SUMMARY, pxtSummaryHtml) : null)
+        .commentBlockHtml(commentBlockHtml)
+        .milestoneRows(milestoneRows)
+        .customFieldValues(Collections.unmodifiableMap(values.customFieldValues))
+        .contentHash(hashContent(issue, values, pxtSummaryHtml, commentBlockHtml, milestoneRows))
+        .build();
+  }
+
+  /**
+   * Hash the values of the slide that can not be patched, from the data already collected. The
+   * rendered fields are hashed as HTML, what the user sees of them.
+   */
+  private static String hashContent(Issue issue, FieldValues values,
+      @Nullable String pxtSummaryHtml, @Nullable String commentBlockHtml,
+      List<List<String>> milestoneRows) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Every Java platform supports SHA-256.", e);
+    }
+    updateDigest(digest, issue.getKey());
+    updateDigest(digest, issue.getSummary());
+    updateDigest(digest, values.externalOwner);
+    updateDigest(digest, String.join(", ", values.internalOwners));
+    for (Entry<String, String> customFieldValue : new TreeMap<>(values.customFieldValues)
+        .entrySet()) {
+      updateDigest(digest, customFieldValue.getKey());
+      updateDigest(digest, customFieldValue.getValue());
+    }
+    updateDigest(digest, pxtSummaryHtml);
+    updateDigest(digest, commentBlockHtml);
+    updateDigest(digest, String.valueOf(milestoneRows.size()));
+    for (List<String> row : milestoneRows) {
+      updateDigest(digest, String.valueOf(row.size()));
+      for (String cell : row) {
+        updateDigest(digest, cell);
+      }
+    }
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  /**
+   * Add a value to the digest, prefixed with its length so that two lists of values only give the
+   * same digest when they are equal.
+   */
+  private static void updateDigest(MessageDigest digest, @Nullable String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    digest.update((byte) 1);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  /**
+   * Load the issues of a search result again in a single query. They are loaded lazily, one query
+   * per issue on the first field read. The issues loaded by key are already full objects.
+   *
+   * @return The loaded issues, in the order of the given issues
+   */
+  private List<Issue> loadIssues(List<Issue> issues) {
+    List<Long> ids = new ArrayList<>(issues.size());
+    for (Issue issue : issues) {
+      if (issue.getId() != null && !(issue instanceof MutableIssue)) {
+        ids.add(issue.getId());
+      }
+    }
+    if (ids.size() < 2) {
+      return issues;
+    }
+
+    Map<Long, Issue> loadedIssues = new HashMap<>();
+    for (Issue issue : issueManager.getIssueObjects(ids)) {
+      loadedIssues.put(issue.getId(), issue);
+    }
+
+    // An issue deleted in the meantime keeps its search result copy
+    List<Issue> result = new ArrayList<>(issues.size());
+    for (Issue issue : issues) {
+      Issue loadedIssue = issue.getId() != null ? loadedIssues.get(issue.getId()) : null;
+      result.add(loadedIssue != null ? loadedIssue : issue);
+    }
+    return result;
+  }
+
+  /**
+   * @return The "Status-Flag2" value in Jira, written to "Overall Health" in the slide
+   */
+  private String getOverallHealth(Issue issue) {
+    CustomField statusFlag2Field = customFieldResolver.getFirstCustomFieldByName(STATUS_FLAG2);
+    if (statusFlag2Field == null) {
+      return "";
+    }
+    return getSingleSelectValue((SelectCFType) statusFlag2Field.getCustomFieldType(),
+        statusFlag2Field, issue);
+  }
+
+  /**
+   * @return The "Contact" value in Jira, written to "External Owner" in the slide. Null if the
+   * field does not exist.
+   */
+  @Nullable
+  private String getExternalOwner(Issue issue) {
+    CustomField contactField = customFieldResolver.getFirstCustomFieldByName(CONTACT);
+    if (contactField == null) {
+      return null;
+    }
+    String userName = getUserDisplayName((UserCFType) contactField.getCustomFieldType(),
+        contactField, issue);
+    log.debug("[{}] value from issue [{}]: [{}]", CONTACT, issue.getKey(), userName);
+    return userName != null ? userName : "";
+  }
+
+  /**
+   * @return The "CTA" or "SW Lead" value in Jira, written to "Internal Owner" in the slide
+   */
+  @Nullable
+  private String getInternalOwner(String fieldName, Issue issue) {
+    CustomField userField = customFieldResolver.getFirstCustomFieldByName(fieldName);
+    if (userField == null) {
+      return null;
+    }
+    return getUserDisplayName((UserCFType) userField.getCustomFieldType(), userField, issue);
+  }
+
+  private String getCustomFieldText(String fieldName, Issue issue) {
+    CustomField customField = customFieldResolver.getFirstCustomFieldByName(fieldName);
+    if (customField == null) {
+      log.debug("The bound custom field [{}] does not exist.", fieldName);
+      return "";
+    }
+    return toText(customField.getValue(issue));
+  }
+
+  /**
+   * Read the first {@code maxRows} milestones from the rendered field. The HTML is neither parsed
+   * into a document nor logged, the field may hold thousands of rows.
+   */
+  private List<List<String>> getMilestoneRows(Issue issue, int maxRows) {
+    if (maxRows == 0) {
+      return Collections.emptyList();
+    }
+
+    /* "Milestones" in Jira to "Timeline/Milestones" in slide */
+    String htmlValue = getRenderedHtml(MILESTONES, issue);
+    if (htmlValue == null) {
+      return Collections.emptyList();
+    }
+
+    // One more row is read, to tell whether any row is left out
+    long start = exportMetricsService.startTimer();
+    List<List<String>> rows = MilestoneRowReader.read(htmlValue,
+        maxRows == Integer.MAX_VALUE ? maxRows : maxRows + 1);
+    exportMetricsService.recordStage(ExportStage.HTML_PARSING, start);
+
+    if (rows == null) {
+      log.warn("There is no milestones table found in issue [{}].", issue.getKey());
+      return Collections.emptyList();
+    }
+    if (rows.size() > maxRows) {
+      log.warn("The milestones of issue [{}] have more than {} rows, the rest is not exported. "
+          + "The cap is set with -Dppt-generator.milestones.max-rows.", issue.getKey(), maxRows);
+      return rows.subList(0, maxRows);
+    }
+    return rows;
+  }
+
+  /**
+   * @return The milestone row cap, 0 if the template has no milestones table to fill
+   */
+  private static int getMaxMilestoneRows(TemplatePlan plan) {
+    return plan.getMilestoneRowsPerSlide() == Integer.MAX_VALUE
+        ? 0
+        : ExportSettings.getMaxMilestoneRows();
+  }
+
+  private Element parseBody(String fieldName, String htmlValue) {
+    long start = exportMetricsService.startTimer();
+    Document document = Jsoup.parse(htmlValue);
+    exportMetricsService.recordStage(ExportStage.HTML_PARSING, start);
+
+    if (log.isDebugEnabled()) {
+      log.debug("{} parsed value:\n{}", fieldName, document);
+    }
+    return document.body();
+  }
+
+  @Nullable
+  private String getRenderedHtml(String fieldName, Issue issue) {
+    CustomField customField = customFieldResolver.getFirstCustomFieldByName(fieldName);
+    if (customField == null) {
+      return null;
+    }
+    return wikiRenderService.renderToHtml(customField, issue);
+  }
+
+  @Nullable
+  private String getUserDisplayName(UserCFType cfType, CustomField customField, Issue issue) {
+    ApplicationUser user = cfType.getValueFromIssue(customField, issue);
+    return user != null ? user.getDisplayName() : null;
+  }
+
+  /**
+   * Get the value of any custom field as plain text, for the generic template bindings.
+   *
+   * @return The text value, or "" if there is no value
+   */
+  private String toText(@Nullable Object value) {
+    if (value == null) {
+      return "";
+    } else if (value instanceof Option) {
+      return ((Option) value).getValue();
+    } else if (value instanceof ApplicationUser) {
+      return ((ApplicationUser) value).getDisplayName();
+    } else if (value instanceof Date) {
+      return new Timestamp(((Date) value).getTime()).toLocalDateTime().format(UPDATED_FORMATTER);
+    } else if (value instanceof Collection) {
+      // Multi select, multi user picker, labels,...
+      return ((Collection<?>) value).stream().map(this::toText).collect(Collectors.joining(", "));
+    } else if (value instanceof Map) {
+      // Cascading select: the parent and the child option
+      return ((Map<?, ?>) value).values().stream().map(this::toText)
+          .collect(Collectors.joining(" - "));
+    }
+    return value.toString();
+  }
+
+  /**
+   * Get the text value from a single select custom field. If the value is not set, we will return
+   * an empty string "".
+   *
+   * @param cfType The type of the custom field
+   * @param customField The custom field we want to get value from
+   * @param issue The issue we want to get value from
+   * @return Custom field value, or "" if there is no value
+   */
+  private String getSingleSelectValue(SelectCFType cfType, CustomField customField,
+      Issue issue) {
+    Option option = cfType.getValueFromIssue(customField, issue);
+    return option != null ? option.getValue() : "";
+  }
+
+  /**
+   * The plain field values of one issue.
+   */
+  private static final class FieldValues {
+
+    private String overallHealth = "";
+
+    /* Null when the "Contact" field does not exist in the instance */
+    @Nullable
+    private String externalOwner;
+
+    private final List<String> internalOwners = new ArrayList<>(2);
+    private final Map<String, String> customFieldValues = new HashMap<>();
+  }
+}
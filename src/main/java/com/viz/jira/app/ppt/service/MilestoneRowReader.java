@@ -0,0 +1,185 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.service.HtmlTokenizer.Token;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the rows of the first table of the rendered "Milestones" field over the
+ * {@link HtmlTokenizer} tokens, no document is built. The reading stops at the end of the table,
+ * or as soon as enough rows are read: a field with thousands of rows pasted from a spreadsheet
+ * costs no more than the rows that are exported.
+ *
+ * <p>The text of a cell is the text of everything inside it, with the whitespace collapsed like
+ * Jsoup's {@code Element.text()}. A table nested in a cell is part of the cell text.
+ */
+final class MilestoneRowReader {
+
+  private final int maxRows;
+  private final List<List<String>> rows = new ArrayList<>();
+
+  /* 0 before the first table, 1 in the first table, more in a table nested in a cell */
+  private int tableDepth;
+  private boolean tableFound;
+  private boolean headerSkipped;
+
+  /* The row and the cell being read, null outside of them */
+  private List<String> row;
+  private StringBuilder cell;
+
+  private MilestoneRowReader(int maxRows) {
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * @param html The rendered HTML of the field
+   * @param maxRows The number of rows to read at most, the header row excluded
+   * @return The text of the cells of each row, the header row excluded. Null if there is no
+   * table.
+   */
+  @Nullable
+  static List<List<String>> read(String html, int maxRows) {
+    return new MilestoneRowReader(maxRows).read(html);
+  }
+
+  @Nullable
+  private List<List<String>> read(String html) {
+    HtmlTokenizer tokenizer = new HtmlTokenizer(html);
+    Token token;
+    while (!isDone() && (token = tokenizer.next()) != Token.EOF) {
+      switch (token) {
+        case START_TAG:
+          onStartTag(tokenizer.tagName(), tokenizer.isSelfClosing());
+          break;
+        case END_TAG:
+          onEndTag(tokenizer.tagName());
+          break;
+        case TEXT:
+          if (cell != null) {
+            cell.append(tokenizer.text());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (!tableFound) {
+      return null;
+    }
+    // A table that is not closed ends with the field
+    flushRow();
+    return rows.size() > maxRows ? rows.subList(0, maxRows) : rows;
+  }
+
+  private boolean isDone() {
+    return rows.size() >= maxRows || (tableFound && tableDepth == 0);
+  }
+
+  private void onStartTag(String tag, boolean selfClosing) {
+    if ("table".equals(tag) && !selfClosing) {
+      if (tableDepth > 0 || !tableFound) {
+        tableFound = true;
+        tableDepth++;
+      }
+      if (tableDepth == 1) {
+        return;
+      }
+    }
+    if (tableDepth == 0) {
+      return;
+    }
+
+    if (tableDepth == 1 && "tr".equals(tag)) {
+      // A row that is not closed ends with the next one
+      flushRow();
+      row = new ArrayList<>();
+    } else if (tableDepth == 1 && isCell(tag)) {
+      flushCell();
+      if (row == null) {
+        row = new ArrayList<>();
+      }
+      cell = new StringBuilder();
+    } else if (cell != null && addsSpace(tag)) {
+      cell.append(' ');
+    }
+  }
+
+  private void onEndTag(String tag) {
+    if (tableDepth == 0) {
+      return;
+    }
+
+    if ("table".equals(tag)) {
+      tableDepth--;
+      if (tableDepth == 0) {
+        flushRow();
+      } else if (cell != null) {
+        cell.append(' ');
+      }
+    } else if (tableDepth == 1 && "tr".equals(tag)) {
+      flushRow();
+    } else if (tableDepth == 1 && isCell(tag)) {
+      flushCell();
+    } else if (cell != null && addsSpace(tag)) {
+      cell.append(' ');
+    }
+  }
+
+  private void flushCell() {
+    if (cell != null) {
+      row.add(HtmlTokenizer.normalizeWhitespace(cell));
+      cell = null;
+    }
+  }
+
+  private void flushRow() {
+    flushCell();
+    if (row == null) {
+      return;
+    }
+
+    // The first row is the header, we don't need it
+    if (headerSkipped) {
+      rows.add(Collections.unmodifiableList(row));
+    } else {
+      headerSkipped = true;
+    }
+    row = null;
+  }
+
+  private static boolean isCell(String tag) {
+    return "td".equals(tag) || "th".equals(tag);
+  }
+
+  /**
+   * @return True if the tag separates the words around it, as in Jsoup's text
+   */
+  private static boolean addsSpace(String tag) {
+    switch (tag) {
+      case "br":
+      case "table":
+      case "p":
+      case "div":
+      case "li":
+      case "ul":
+      case "ol":
+      case "tr":
+      case "td":
+      case "th":
+      case "h1":
+      case "h2":
+      case "h3":
+      case "h4":
+      case "h5":
+      case "h6":
+      case "pre":
+      case "blockquote":
+        return true;
+      default:
+        return false;
+    }
+  }
+}
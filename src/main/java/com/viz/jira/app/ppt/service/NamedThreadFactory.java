@@ -0,0 +1,36 @@
+package com.viz.jira.app.ppt.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after the pool they belong to, so they are easy to find in a Jira
+ * thread dump.
+ */
+class NamedThreadFactory implements ThreadFactory {
+
+  private final String namePrefix;
+  private final int priority;
+  private final AtomicInteger count = new AtomicInteger();
+
+  NamedThreadFactory(String namePrefix) {
+    this(namePrefix, Thread.NORM_PRIORITY);
+  }
+
+  /**
+   * @param priority The priority of the threads, e.g. {@link Thread#MIN_PRIORITY} for background
+   * work that must not compete with the request threads
+   */
+  NamedThreadFactory(String namePrefix, int priority) {
+    this.namePrefix = namePrefix;
+    this.priority = priority;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, namePrefix + "-" + count.incrementAndGet());
+    thread.setDaemon(true);
+    thread.setPriority(priority);
+    return thread;
+  }
+}
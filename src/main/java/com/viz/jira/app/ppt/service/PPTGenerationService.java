@@ -1,10 +1,51 @@
 package com.viz.jira.app.ppt.service;
 
 import com.atlassian.jira.issue.Issue;
-import java.io.File;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
 
 public interface PPTGenerationService {
 
-  File generatePPT(Issue issue) throws IOException;
+  /**
+   * Generate the PPT for the issue and write it directly to the given stream. The stream is not
+   * closed.
+   *
+   * @param issue The issue to export
+   * @param template The template to generate the PPT from
+   * @param compression How hard the PPTX is compressed
+   * @param out The stream to write the PPTX data to
+   * @throws IOException If the PPT could not be generated or written
+   */
+  void generatePPT(Issue issue, CompiledTemplate template, CompressionMode compression,
+      OutputStream out) throws IOException;
+
+  /**
+   * Generate one PPT with one slide per issue, in the order of the given issues. The stream is not
+   * closed.
+   *
+   * @param issues The issues to export
+   * @param template The template to generate the PPT from
+   * @param compression How hard the PPTX is compressed
+   * @param out The stream to write the PPTX data to
+   * @throws IOException If the PPT could not be generated or written
+   */
+  void generatePPT(List<Issue> issues, CompiledTemplate template, CompressionMode compression,
+      OutputStream out) throws IOException;
+
+  /**
+   * Write the collected issue data into a slide cloned from the template slide. The
+   * Milestones that don't fit in the slide go to continuation slides, appended to the slide show.
+   *
+   * @param data The collected issue data
+   * @param plan The compiled bindings of the template
+   * @param slide The slide to fill
+   */
+  void fillSlide(IssueSlideData data, TemplatePlan plan, XSLFSlide slide);
+
+  String getExportFileName(Issue issue);
 }
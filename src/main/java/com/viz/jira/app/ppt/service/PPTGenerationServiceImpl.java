@@ -1,48 +1,44 @@
 package com.viz.jira.app.ppt.service;
 
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.COMMENT_BLOCK;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.CONTACT;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.CTA;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.MILESTONES;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.PXT_SUMMARY;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.STATUS_FLAG2;
-import static com.viz.jira.app.ppt.sdo.CustomFieldName.SW_LEAD;
-
-import com.atlassian.jira.config.util.JiraHome;
-import com.atlassian.jira.issue.CustomFieldManager;
 import com.atlassian.jira.issue.Issue;
-import com.atlassian.jira.issue.RendererManager;
-import com.atlassian.jira.issue.customfields.impl.SelectCFType;
-import com.atlassian.jira.issue.customfields.impl.UserCFType;
-import com.atlassian.jira.issue.customfields.option.Option;
-import com.atlassian.jira.issue.fields.CustomField;
-import com.atlassian.jira.issue.status.Status;
-import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+import com.viz.jira.app.ppt.sdo.CellBinding;
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
 import com.viz.jira.app.ppt.sdo.OverallHealthColor;
-import com.viz.jira.app.ppt.sdo.ShapeName;
+import com.viz.jira.app.ppt.sdo.ShapeBinding;
 import com.viz.jira.app.ppt.sdo.StatusColor;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import com.viz.jira.app.ppt.service.StreamingDeckWriter.SlidePart;
 import java.awt.Color;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
 import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.apache.poi.xslf.usermodel.XSLFShape;
 import org.apache.poi.xslf.usermodel.XSLFSlide;
 import org.apache.poi.xslf.usermodel.XSLFTable;
 import org.apache.poi.xslf.usermodel.XSLFTableCell;
-import org.apache.poi.xslf.usermodel.XSLFTextParagraph;
-import org.apache.poi.xslf.usermodel.XSLFTextRun;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.apache.poi.xslf.usermodel.XSLFTableRow;
+import org.apache.xmlbeans.XmlObject;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTRegularTextRun;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTSolidColorFillProperties;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTable;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTableCell;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTableCellProperties;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTextBody;
+import org.openxmlformats.schemas.drawingml.x2006.main.CTTextParagraph;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTGraphicalObjectFrame;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTSlide;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,331 +47,398 @@ import org.springframework.stereotype.Service;
 @Service
 public class PPTGenerationServiceImpl implements PPTGenerationService {
 
-  private static final String TEMPLATE_FILE_NAME = "Template.pptx";
-
   private static final Logger log = LoggerFactory.getLogger(PPTGenerationServiceImpl.class);
 
-  private final JiraHome jiraHome;
-  private final CustomFieldManager customFieldManager;
-  private final RendererManager rendererManager;
+  private static final QName TABLE_NAME =
+      new QName("http://schemas.openxmlformats.org/drawingml/2006/main", "tbl");
+
+  private final JiraAuthenticationContext authContext;
   private final HtmlToPptService htmlToPptService;
+  private final IssueDataService issueDataService;
+  private final SlideCacheService slideCacheService;
+  private final ExportMetricsService exportMetricsService;
 
   @Autowired
-  public PPTGenerationServiceImpl(@ComponentImport JiraHome jiraHome,
-      @ComponentImport CustomFieldManager customFieldManager,
-      @ComponentImport RendererManager rendererManager,
-      HtmlToPptService htmlToPptService) {
-    this.jiraHome = jiraHome;
-    this.customFieldManager = customFieldManager;
-    this.rendererManager = rendererManager;
+  public PPTGenerationServiceImpl(@ComponentImport JiraAuthenticationContext authContext,
+      HtmlToPptService htmlToPptService,
+      IssueDataService issueDataService,
+      SlideCacheService slideCacheService,
+      ExportMetricsService exportMetricsService) {
+    this.authContext = authContext;
     this.htmlToPptService = htmlToPptService;
+    this.issueDataService = issueDataService;
+    this.slideCacheService = slideCacheService;
+    this.exportMetricsService = exportMetricsService;
   }
 
   @Override
-  public File generatePPT(Issue issue) throws IOException {
-    log.info("Generating PPT for issue [{}]...", issue.getKey());
-    InputStream inputStream = Thread.currentThread().getContextClassLoader()
-        .getResourceAsStream(TEMPLATE_FILE_NAME);
-
-    if (inputStream == null) {
-      String message = String.format(
-          "Error while generating the PPT for issue [%s]. The PPT template file could not be read.",
-          issue.getKey());
-      throw new IOException(message);
-    }
-
-    XMLSlideShow ppt = new XMLSlideShow(inputStream);
-
-    /* The Template contains one slide already (The PPT is created by me, so I know it) */
-    XSLFSlide slide = ppt.getSlides().get(0);
-
-    List<XSLFShape> shapes = slide.getShapes();
-    for (XSLFShape shape : shapes) {
-      writeIssueDataToShape(issue, shape);
+  public void generatePPT(Issue issue, CompiledTemplate template, CompressionMode compression,
+      OutputStream out) throws IOException {
+    log.info("Generating PPT for issue [{}] from template [{}]...", issue.getKey(),
+        template.getName());
+    exportMetricsService.exportStarted();
+
+    // Write the new PPT straight to the output, the caller owns (and closes) the stream
+    CountingOutputStream countingOut = new CountingOutputStream(out);
+    try {
+      IssueSlideData data = issueDataService.collect(issue, template.getPlan());
+
+      /* When only the Status, Overall Health or Updated of the issue changed since its last
+       * export, the slides of that export are patched: nothing is filled again. The slides are
+       * kept per user, what they can see of the rendered fields. */
+      String slideCacheKey = slideCacheService.getCacheKey(issue, authContext.getLoggedInUser(),
+          template);
+      CachedSlides cachedSlides = slideCacheService.get(slideCacheKey);
+      if (cachedSlides != null && canPatch(cachedSlides, data)) {
+        log.info("The content of issue [{}] has not changed, patching its last slides.",
+            issue.getKey());
+        writePatched(cachedSlides, data, template, compression, countingOut);
+      } else {
+        try (XMLSlideShow ppt = openTemplate(template)) {
+          /* The Template contains one slide already (The PPT is created by me, so I know it) */
+          XSLFSlide slide = ppt.getSlides().get(0);
+          fillSlide(data, template.getPlan(), slide);
+
+          List<SlidePart> slideParts = write(ppt.getSlides(), template, compression,
+              countingOut);
+          if (slideParts != null) {
+            boolean overallHealthFilled = OverallHealthColor.get(data.getOverallHealth()) != null;
+            slideCacheService.put(slideCacheKey, new CachedSlides(data.getContentHash(),
+                overallHealthFilled, slideParts));
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      exportMetricsService.exportFailed();
+      throw e;
     }
 
-    String tmpFilePath = getTempFilePath(issue);
-
-    // Write the new PPT to a new temporary file
-    log.info("Writing PPT data to a temporary file at: [{}]", tmpFilePath);
-    FileOutputStream out = new FileOutputStream(tmpFilePath);
-    ppt.write(out);
-    out.close();
-    ppt.close();
-    log.info("The PPT data has been successfully written to [{}]", tmpFilePath);
-
-    // Get and return the tmp file after writing
-    return new File(tmpFilePath);
+    exportMetricsService.exportSucceeded(countingOut.count);
+    log.info("The PPT data of issue [{}] has been successfully written.", issue.getKey());
   }
 
-  private void writeIssueDataToShape(Issue issue, XSLFShape shape) {
-    String shapeName = shape.getShapeName();
-    // We have 3 XSLFTable in the Template (Top Table, Left Table and Right Table)
-    if (shape instanceof XSLFTable) {
-      writeIssueDataToTheTable(issue, (XSLFTable) shape);
-    } else {
-      log.warn("Found an unknown shape [{}] in the template. Shape type: [{}]",
-          shapeName, shape.getClass().getName());
+  @Override
+  public void generatePPT(List<Issue> issues, CompiledTemplate template,
+      CompressionMode compression, OutputStream out) throws IOException {
+    log.info("Generating PPT for {} issues from template [{}]...", issues.size(),
+        template.getName());
+    exportMetricsService.exportStarted();
+
+    long outputBytes;
+    try {
+      try (XMLSlideShow ppt = openTemplate(template)) {
+        /* The slides of an issue are written to the output as soon as they are filled, then
+         * removed, so only the template slide and one issue are in memory at any time */
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+        StreamingDeckWriter deckWriter =
+            new StreamingDeckWriter(template, compression, countingOut);
+
+        // The template slide is only the prototype, it is not part of the output
+        XSLFSlide templateSlide = ppt.getSlides().get(0);
+        /* Collecting and rendering the data runs in parallel, POI is not thread-safe so the
+         * filling and writing not */
+        issueDataService.collect(issues, template.getPlan(), data -> {
+          XSLFSlide slide = ppt.createSlide(templateSlide.getSlideLayout());
+          slide.importContent(templateSlide);
+          fillSlide(data, template.getPlan(), slide);
+
+          List<XSLFSlide> slides = ppt.getSlides();
+          long start = exportMetricsService.startTimer();
+          deckWriter.writeSlides(new ArrayList<>(slides.subList(1, slides.size())));
+          exportMetricsService.recordStage(ExportStage.SERIALIZATION, start);
+          for (int i = slides.size() - 1; i > 0; i--) {
+            ppt.removeSlide(i);
+          }
+        });
+
+        long start = exportMetricsService.startTimer();
+        deckWriter.finish();
+        exportMetricsService.recordStage(ExportStage.SERIALIZATION, start);
+        outputBytes = countingOut.count;
+      }
+    } catch (IOException | RuntimeException e) {
+      exportMetricsService.exportFailed();
+      throw e;
     }
-  }
 
-  private String getTempFilePath(Issue issue) {
-    String fileName = getExportFileName(issue);
-
-    return jiraHome.getHome().getAbsolutePath()
-        + File.separator + "tmp" + File.separator + fileName;
+    exportMetricsService.exportSucceeded(outputBytes);
+    log.info("The PPT data of {} issues has been successfully written.", issues.size());
   }
 
-  private String getExportFileName(Issue issue) {
+  @Override
+  public String getExportFileName(Issue issue) {
     return issue.getKey() + ".pptx";
   }
 
-  private void writeIssueDataToTheTable(Issue issue, XSLFTable table) {
-    String tableName = table.getShapeName();
-    log.info("Start writing Issue data to the table [{}]", tableName);
-
-    switch (tableName) {
-      case ShapeName.TOP_TABLE:
-        writeTopTable(issue, table);
-        break;
-      case ShapeName.LEFT_TABLE:
-        writeLeftTable(issue, table);
-        break;
-      case ShapeName.RIGHT_TABLE:
-        writeRightTable(issue, table);
-        break;
-      default:
-        log.warn("The table with name [{}] is not yet handled. ", tableName);
+  @Override
+  public void fillSlide(IssueSlideData data, TemplatePlan plan, XSLFSlide slide) {
+    long start = exportMetricsService.startTimer();
+    List<List<List<String>>> milestonePages = paginate(data.getMilestoneRows(),
+        plan.getMilestoneRowsPerSlide());
+
+    /* The milestones that don't fit go to continuation slides. They are cloned first, while the
+     * slide is still the untouched template. */
+    List<XSLFSlide> continuationSlides = new ArrayList<>(milestonePages.size() - 1);
+    for (int page = 1; page < milestonePages.size(); page++) {
+      XSLFSlide continuationSlide = slide.getSlideShow().createSlide(slide.getSlideLayout());
+      continuationSlide.importContent(slide);
+      continuationSlides.add(continuationSlide);
     }
-  }
 
-  private void writeRightTable(Issue issue, XSLFTable table) {
-    /* "Milestones" in Jira to "Timeline/Milestones" in slide */
-    CustomField milestonesField = getFirstCustomFieldByName(MILESTONES);
-    if (milestonesField != null) {
-      String htmlValue = exportHtmlValueFromMultiLineTextField(milestonesField, issue);
-      Document document = Jsoup.parse(htmlValue);
-      log.info("{} parsed HTML value:\n{}", MILESTONES, document);
-      Elements tables = document.body().getElementsByTag("table");
-
-      if (!tables.isEmpty()) {
-        Element htmlTable = tables.first();
-        writeMilestonesTable(issue, htmlTable, table);
-      } else {
-        log.warn("There is no milestones table found.");
-      }
+    List<XSLFShape> shapes = slide.getShapes();
+    for (ShapeBinding shapeBinding : plan.getShapes()) {
+      XSLFTable table = (XSLFTable) shapes.get(shapeBinding.getShapeIndex());
+      writeBindings(data, milestonePages.get(0), shapeBinding, table, false);
     }
-  }
-
-  private void writeMilestonesTable(Issue issue, Element htmlTable, XSLFTable table) {
-    /* The XSLFTable template has only 17 rows to write data (plus 1 for header). If the customer
-     * input more than 17 milestones, the rest will be ignored. In that case, the developers need
-     * to edit the PPT template. */
-    Element tableBody = htmlTable.getElementsByTag("tbody").get(0);
-    Elements htmlRows = tableBody.children();
-
-    // Log a warning if the Milestones table has more than 17 milestones (plus 1 header)
-    if (htmlRows.size() > 18) {
-      log.warn("The Milestone table on issue [{}] has more than 17 item, and it exceed the number "
-              + "of item the PPT template can hold. The exceeded items will be ignored.",
-          issue.getKey());
+    for (int page = 1; page < milestonePages.size(); page++) {
+      fillContinuationSlide(data, milestonePages.get(page), plan,
+          continuationSlides.get(page - 1));
     }
+    exportMetricsService.recordStage(ExportStage.SHAPE_FILLING, start);
+  }
 
-    if (htmlRows.isEmpty()) {
-      log.warn("The table Milestones on issue [{}] has no row.", issue.getKey());
-      return;
+  private XMLSlideShow openTemplate(CompiledTemplate template) throws IOException {
+    long start = exportMetricsService.startTimer();
+    try {
+      return template.open();
+    } finally {
+      exportMetricsService.recordStage(ExportStage.TEMPLATE_LOAD, start);
     }
+  }
 
-    /* Start writing from the second row, we don't need the header */
-    for (int rowIndex = 1; rowIndex < htmlRows.size(); rowIndex++) {
-      /* We only write the first 17 rows to the PPT, since the Template has only 17 placeholders */
-      if (rowIndex > 17) {
-        break;
-      }
-
-      Element htmlRow = htmlRows.get(rowIndex);
-
-      // The 1st column from Jira -> The 1st column in PPT
-      String planned = htmlRow.child(0).text();
-      XSLFTableCell pptCell = table.getCell(rowIndex, 0);
-      setTextKeepFormat(planned, pptCell);
-
-      // The 3rd column from Jira -> The 2nd column in PPT
-      String status = htmlRow.child(2).text();
-      pptCell = table.getCell(rowIndex, 1);
-      setTextKeepFormat(status, pptCell);
-
-      // The 5th column from Jira -> The 3rd column in PPT
-      String task = htmlRow.child(4).text();
-      pptCell = table.getCell(rowIndex, 2);
-      setTextKeepFormat(task, pptCell);
-    }
+  /**
+   * Write a PPT made of the given slides to the output.
+   *
+   * @return The written slides, or null if they refer to media that are not in the template
+   */
+  @Nullable
+  private List<SlidePart> write(List<XSLFSlide> slides, CompiledTemplate template,
+      CompressionMode compression, OutputStream out) throws IOException {
+    long start = exportMetricsService.startTimer();
+    StreamingDeckWriter deckWriter = new StreamingDeckWriter(template, compression, out);
+    List<SlidePart> slideParts = deckWriter.writeSlides(slides);
+    deckWriter.finish();
+    exportMetricsService.recordStage(ExportStage.SERIALIZATION, start);
+    return deckWriter.hasSlideMedia() ? null : slideParts;
   }
 
-  private void writeLeftTable(Issue issue, XSLFTable table) {
-    writePxtSummaryToTable(issue, table);
-    writeExternalOwner(issue, table);
-    writeInternalOwner(issue, table);
-    writeStatusUpdate(issue, table);
+  /**
+   * @return True if the slides were filled with the same content, so patching the Status, Overall
+   * Health and Updated cells gives the slides a new generation would give
+   */
+  private static boolean canPatch(CachedSlides cachedSlides, IssueSlideData data) {
+    // Without a color the cell keeps the fill of the template, which a patch can not bring back
+    boolean overallHealthFilled = OverallHealthColor.get(data.getOverallHealth()) != null;
+    return cachedSlides.getContentHash().equals(data.getContentHash())
+        && cachedSlides.isOverallHealthFilled() == overallHealthFilled;
   }
 
-  private void writeStatusUpdate(Issue issue, XSLFTable table) {
-    /* "Comment Block" in Jira to "Status Update and Issues/Risks" in slide */
-    CustomField commentBlockField = getFirstCustomFieldByName(COMMENT_BLOCK);
-    XSLFTableCell commentBlockCell = table.getCell(11, 0);
-    if (commentBlockField != null) {
-      String htmlValue = exportHtmlValueFromMultiLineTextField(commentBlockField, issue);
-      Document document = Jsoup.parse(htmlValue);
-      log.info("{} parsed value:\n{}", COMMENT_BLOCK, document);
-      Element body = document.body();
-      htmlToPptService.writeHtmlToTextShape(body, commentBlockCell);
-    } else {
-      commentBlockCell.clearText();
+  /**
+   * Write a PPT made of the cached slides, with the patchable values of the data.
+   */
+  private void writePatched(CachedSlides cachedSlides, IssueSlideData data,
+      CompiledTemplate template, CompressionMode compression, OutputStream out)
+      throws IOException {
+    long start = exportMetricsService.startTimer();
+    List<SlidePart> slideParts = new ArrayList<>(cachedSlides.getSlideParts().size());
+    for (SlidePart cachedPart : cachedSlides.getSlideParts()) {
+      CTSlide slide = cachedPart.readSlide();
+      // The first slide of the issue is followed by its continuation slides
+      patchSlide(data, template.getPlan(), slide, !slideParts.isEmpty());
+      slideParts.add(cachedPart.withSlide(slide));
     }
-  }
+    exportMetricsService.recordStage(ExportStage.SHAPE_FILLING, start);
 
-  private void writeInternalOwner(Issue issue, XSLFTable table) {
-    /* The "CTA" and "SW Lead" in Jira will be written to "Internal Owner" in the slide. */
-    List<String> names = new ArrayList<>();
+    start = exportMetricsService.startTimer();
+    StreamingDeckWriter deckWriter = new StreamingDeckWriter(template, compression, out);
+    deckWriter.writeSlideParts(slideParts);
+    deckWriter.finish();
+    exportMetricsService.recordStage(ExportStage.SERIALIZATION, start);
+  }
 
-    CustomField ctaField = getFirstCustomFieldByName(CTA);
-    if (ctaField != null) {
-      String ctaUserName = getUserDisplayNameUserPickerField(ctaField, issue);
-      if (ctaUserName != null) {
-        names.add(ctaUserName);
+  /**
+   * Write the Status, Overall Health and Updated values into a slide filled before, the same way
+   * {@link #writeBindings} does. The slide is plain XML, the tables are found by name: the
+   * continuation slides do not have every table of the template.
+   */
+  private void patchSlide(IssueSlideData data, TemplatePlan plan, CTSlide slide,
+      boolean continuation) {
+    Map<String, CTTable> tables = new HashMap<>();
+    for (CTGraphicalObjectFrame frame : slide.getCSld().getSpTree().getGraphicFrameArray()) {
+      XmlObject[] children = frame.getGraphic().getGraphicData().selectChildren(TABLE_NAME);
+      if (children.length > 0 && children[0] instanceof CTTable) {
+        tables.put(frame.getNvGraphicFramePr().getCNvPr().getName(), (CTTable) children[0]);
       }
     }
 
-    CustomField swLeadField = getFirstCustomFieldByName(SW_LEAD);
-    if (swLeadField != null) {
-      String swLeadUserName = getUserDisplayNameUserPickerField(swLeadField, issue);
-      if (swLeadUserName != null) {
-        names.add(swLeadUserName);
+    for (ShapeBinding shapeBinding : plan.getShapes()) {
+      CTTable table = tables.get(shapeBinding.getShapeName());
+      if (table == null) {
+        continue;
       }
-    }
-
-    String internalOwnerNames = String.join(", ", names);
-    XSLFTableCell internalOwnerCell = table.getCell(9, 1);
-    setTextKeepFormat(internalOwnerNames, internalOwnerCell);
-  }
 
-  private void writeExternalOwner(Issue issue, XSLFTable table) {
-    /* The "Contact" value in Jira will be written to "External Owner" in the slide. */
-    XSLFTableCell externalOwnerCell = table.getCell(9, 0);
-    CustomField contactField = getFirstCustomFieldByName(CONTACT);
-    if (contactField != null) {
-      String userName = getUserDisplayNameUserPickerField(contactField, issue);
-      log.info("[{}] value from issue [{}]: [{}]", CONTACT, issue.getKey(), userName);
-      setTextKeepFormat(userName, externalOwnerCell);
-    } else {
-      externalOwnerCell.clearText();
+      for (CellBinding binding : shapeBinding.getCells()) {
+        if (continuation && !binding.getSource().isRepeatedOnContinuation()) {
+          continue;
+        }
+
+        CTTableCell cell = table.getTrArray(binding.getRow()).getTcArray(binding.getColumn());
+        switch (binding.getSource()) {
+          case UPDATED:
+            setTextKeepFormat(data.getUpdated(), cell);
+            break;
+          case STATUS:
+            setTextKeepFormat(data.getStatusName(), cell);
+            setFillColor(StatusColor.getColor(data.getStatusCategoryKey()), cell);
+            break;
+          case OVERALL_HEALTH:
+            setTextKeepFormat(data.getOverallHealth(), cell);
+            Color color = OverallHealthColor.get(data.getOverallHealth());
+            if (color != null) {
+              setFillColor(color, cell);
+            }
+            break;
+          default:
+            // Part of the content hash, it has not changed
+        }
+      }
     }
   }
 
-  private void writePxtSummaryToTable(Issue issue, XSLFTable table) {
-    log.info("Writing [{}] to PPT", PXT_SUMMARY);
-    CustomField pxtSummaryField = getFirstCustomFieldByName(PXT_SUMMARY);
-    if (pxtSummaryField != null) {
-      String htmlValue = exportHtmlValueFromMultiLineTextField(pxtSummaryField, issue);
-      Document document = Jsoup.parse(htmlValue);
-      log.info("{} parsed value:\n{}", PXT_SUMMARY, document);
-      Element pxtBody = document.body();
-
-      // Write description
-      XSLFTableCell descriptionCell = table.getCell(1, 0);
-      Element description = pxtBody.child(1);
-      htmlToPptService.writeHtmlToTextShape(description, descriptionCell);
-
-      // Write product intercepts
-      XSLFTableCell productInterceptsCell = table.getCell(3, 0);
-      Element productIntercepts = pxtBody.child(3);
-      htmlToPptService.writeHtmlToTextShape(productIntercepts, productInterceptsCell);
-
-      // Write Success Metric
-      XSLFTableCell successMetricCell = table.getCell(5, 0);
-      Element successMetric = pxtBody.child(5);
-      htmlToPptService.writeHtmlToTextShape(successMetric, successMetricCell);
-
-      // Write Key Deliverables
-      XSLFTableCell keyDeliverablesCell = table.getCell(7, 0);
-      Element keyDeliverables = pxtBody.child(7);
-      htmlToPptService.writeHtmlToTextShape(keyDeliverables, keyDeliverablesCell);
+  /**
+   * A continuation slide repeats the header values and holds the next page of milestones. The
+   * tables with nothing to repeat, e.g. the Left Table, are only on the first slide of the issue.
+   */
+  private void fillContinuationSlide(IssueSlideData data, List<List<String>> milestoneRows,
+      TemplatePlan plan, XSLFSlide slide) {
+    List<XSLFShape> shapes = new ArrayList<>(slide.getShapes());
+    for (ShapeBinding shapeBinding : plan.getShapes()) {
+      XSLFTable table = (XSLFTable) shapes.get(shapeBinding.getShapeIndex());
+      if (shapeBinding.isRepeatedOnContinuation()) {
+        writeBindings(data, milestoneRows, shapeBinding, table, true);
+      } else {
+        slide.removeShape(table);
+      }
     }
   }
 
-  private String getUserDisplayNameUserPickerField(CustomField customField, Issue issue) {
-    UserCFType cfType = (UserCFType) customField.getCustomFieldType();
-    ApplicationUser user = cfType.getValueFromIssue(customField, issue);
-    return user != null ? user.getDisplayName() : null;
-  }
+  private void writeBindings(IssueSlideData data, List<List<String>> milestoneRows,
+      ShapeBinding shapeBinding, XSLFTable table, boolean continuation) {
+    log.debug("Start writing Issue data to the table [{}]", shapeBinding.getShapeName());
+    List<XSLFTableRow> rows = table.getRows();
+    for (CellBinding binding : shapeBinding.getCells()) {
+      if (continuation && !binding.getSource().isRepeatedOnContinuation()) {
+        continue;
+      }
 
-  private String exportHtmlValueFromMultiLineTextField(CustomField customField, Issue issue) {
-    String wikiMarkupValue = getTextCustomFieldValue(customField, issue);
-    return wikiMarkupToHtml(wikiMarkupValue, issue);
+      XSLFTableCell cell = rows.get(binding.getRow()).getCells().get(binding.getColumn());
+      switch (binding.getSource()) {
+        case ISSUE_KEY:
+          setTextKeepFormat(data.getIssueKey(), cell);
+          break;
+        case SUMMARY:
+          setTextKeepFormat(continuation ? data.getSummary() + " (continued)" : data.getSummary(),
+              cell);
+          break;
+        case UPDATED:
+          setTextKeepFormat(data.getUpdated(), cell);
+          break;
+        case STATUS:
+          writeEditPhase(data, cell);
+          break;
+        case OVERALL_HEALTH:
+          writeOverallHealth(data, cell);
+          break;
+        case EXTERNAL_OWNER:
+          writeExternalOwner(data, cell);
+          break;
+        case INTERNAL_OWNERS:
+          /* The "CTA" and "SW Lead" in Jira will be written to "Internal Owner" in the slide. */
+          setTextKeepFormat(data.getInternalOwners(), cell);
+          break;
+        case PXT_SUMMARY:
+          writePxtSummary(data, binding.getSourceIndexes().get(0), cell);
+          break;
+        case COMMENT_BLOCK:
+          writeStatusUpdate(data, cell);
+          break;
+        case MILESTONES:
+          writeMilestoneRows(milestoneRows, binding, rows);
+          break;
+        case CUSTOM_FIELD:
+          setTextKeepFormat(data.getCustomFieldValues().getOrDefault(binding.getFieldName(), ""),
+              cell);
+          break;
+        default:
+          log.warn("The binding source [{}] is not yet handled.", binding.getSource());
+      }
+    }
   }
 
-  private String wikiMarkupToHtml(String markup, Issue issue) {
-    String rendererType = "atlassian-wiki-renderer";
-    return rendererManager.getRenderedContent(rendererType, markup, issue.getIssueRenderContext());
+  /**
+   * Split the rows into pages of at most {@code pageSize} rows. There is always at least one page,
+   * possibly empty.
+   */
+  private static <T> List<List<T>> paginate(List<T> rows, int pageSize) {
+    List<List<T>> pages = new ArrayList<>();
+    int from = 0;
+    do {
+      int to = (int) Math.min((long) from + pageSize, rows.size());
+      pages.add(rows.subList(from, to));
+      from = to;
+    } while (from < rows.size());
+    return pages;
   }
 
-  private String getTextCustomFieldValue(CustomField customField, Issue issue) {
-    String value = customField.getValueFromIssue(issue);
-    return value != null ? value : "";
+  private void writeMilestoneRows(List<List<String>> milestoneRows, CellBinding binding,
+      List<XSLFTableRow> rows) {
+    /* One row per milestone from the bound cell down. The cells of a row are looked up once, and
+     * the bound Jira columns go to the successive PPT columns. */
+    List<Integer> jiraColumns = binding.getSourceIndexes();
+    for (int i = 0; i < milestoneRows.size(); i++) {
+      List<String> milestone = milestoneRows.get(i);
+      List<XSLFTableCell> cells = rows.get(binding.getRow() + i).getCells();
+      for (int j = 0; j < jiraColumns.size(); j++) {
+        // A row with fewer cells than the header leaves the rest of the PPT row empty
+        int jiraColumn = jiraColumns.get(j);
+        setTextKeepFormat(jiraColumn < milestone.size() ? milestone.get(jiraColumn) : "",
+            cells.get(binding.getColumn() + j));
+      }
+    }
   }
 
-  private String getOverallHealth(Issue issue) {
-    /* The "Status-Flag2" value in Jira will be written to "Overall Health" in the slide. */
-    CustomField statusFlag2Field = getFirstCustomFieldByName(STATUS_FLAG2);
-    if (statusFlag2Field != null) {
-      return getSingleSelectValue(statusFlag2Field, issue);
+  private void writeStatusUpdate(IssueSlideData data, XSLFTableCell commentBlockCell) {
+    /* "Comment Block" in Jira to "Status Update and Issues/Risks" in slide */
+    String commentBlockHtml = data.getCommentBlockHtml();
+    if (commentBlockHtml != null) {
+      htmlToPptService.writeHtmlToTextShape(commentBlockHtml, commentBlockCell);
+    } else {
+      commentBlockCell.clearText();
     }
-    return "";
   }
 
-  /**
-   * Get the text value from a single select custom field. If the value is not set, we will return
-   * an empty string "".
-   *
-   * @param customField The custom field we want to get value from
-   * @param issue The issue we want to get value from
-   * @return Custom field value, or "" if there is no value
-   */
-  private String getSingleSelectValue(CustomField customField, Issue issue) {
-    SelectCFType cfType = (SelectCFType) customField.getCustomFieldType();
-    Option option = cfType.getValueFromIssue(customField, issue);
-    return option != null ? option.getValue() : "";
+  private void writeExternalOwner(IssueSlideData data, XSLFTableCell externalOwnerCell) {
+    /* The "Contact" value in Jira will be written to "External Owner" in the slide. */
+    String externalOwner = data.getExternalOwner();
+    if (externalOwner != null) {
+      setTextKeepFormat(externalOwner, externalOwnerCell);
+    } else {
+      externalOwnerCell.clearText();
+    }
   }
 
-  private void writeTopTable(Issue issue, XSLFTable table) {
-    // Edit issue key
-    log.info("Writing Issue Key: [{}]", issue.getKey());
-    XSLFTableCell issueKeyCell = table.getCell(0, 0);
-    setTextKeepFormat(issue.getKey(), issueKeyCell);
-
-    // Edit issue summary
-    log.info("Writing Issue Summary: [{}]", issue.getSummary());
-    XSLFTableCell summaryCell = table.getCell(1, 0);
-    setTextKeepFormat(issue.getSummary(), summaryCell);
-
-    // Edit Date (Updated)
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    String updated = issue.getUpdated().toLocalDateTime().format(formatter);
-    log.info("Writing Issue updated date: [{}]", updated);
-    XSLFTableCell dateCell = table.getCell(1, 1);
-    setTextKeepFormat(updated, dateCell);
-
-    // Edit Phase (Status)
-    writeEditPhase(issue, table);
-
-    // Edit Overall Health (Status-Flag2)
-    writeOverallHealth(issue, table);
+  private void writePxtSummary(IssueSlideData data, int childIndex, XSLFTableCell cell) {
+    /* The PXT Summary field holds the description, product intercepts, success metric and key
+     * deliverables, each one is a child element of the rendered body. */
+    Element pxtBody = data.getPxtSummary();
+    if (pxtBody != null) {
+      htmlToPptService.writeHtmlToTextShape(pxtBody.child(childIndex), cell);
+    }
   }
 
-  private void writeOverallHealth(Issue issue, XSLFTable table) {
-    String overallHealth = getOverallHealth(issue);
-    log.info("Writing Overall Health: [{}]", overallHealth);
-    XSLFTableCell overallHealthCell = table.getCell(1, 3);
+  private void writeOverallHealth(IssueSlideData data, XSLFTableCell overallHealthCell) {
+    String overallHealth = data.getOverallHealth();
+    log.debug("Writing Overall Health: [{}]", overallHealth);
     setTextKeepFormat(overallHealth, overallHealthCell);
 
     Color color = OverallHealthColor.get(overallHealth);
@@ -386,54 +449,102 @@ public class PPTGenerationServiceImpl implements PPTGenerationService {
     }
   }
 
-  private void writeEditPhase(Issue issue, XSLFTable table) {
-    Status status = issue.getStatus();
-    String statusName = status.getName().toUpperCase();
-    log.info("Writing Issue status: [{}]", statusName);
-    XSLFTableCell phaseCell = table.getCell(1, 2);
+  private void writeEditPhase(IssueSlideData data, XSLFTableCell phaseCell) {
+    String statusName = data.getStatusName();
+    log.debug("Writing Issue status: [{}]", statusName);
     setTextKeepFormat(statusName, phaseCell);
 
     // Set color for the cell based on status color
-    String colorKey = status.getStatusCategory().getKey();
-    Color color = StatusColor.getColor(colorKey);
+    Color color = StatusColor.getColor(data.getStatusCategoryKey());
     phaseCell.setFillColor(color);
   }
 
   private void setTextKeepFormat(String text, XSLFTableCell tableCell) {
-    if (tableCell != null) {
-      // Assume the cell has only one paragraph
-      XSLFTextParagraph paragraph = tableCell.getTextParagraphs().get(0);
-      List<XSLFTextRun> textRuns = paragraph.getTextRuns();
-
-      /* Making sure that the paragraph has only one text run, we will remove all other text runs
-       * after index 0 (from the first text run) */
-      if (textRuns.size() > 1) {
-        textRuns.subList(1, textRuns.size()).clear();
-      }
+    if (tableCell == null) {
+      log.error("The Table Cell is null. Could not write data");
+      return;
+    }
+
+    /* Written straight into the XML: no paragraph or run wrapper list is built for every cell, and
+     * the extra runs are really removed (clearing POI's run list does not change the XML) */
+    setTextKeepFormat(text, tableCell.getXmlObject());
+  }
 
-      /* Get the remaining text run (at position 0) and set text for it. */
-      XSLFTextRun textRun = textRuns.get(0);
-      textRun.setText(text);
+  private static void setTextKeepFormat(String text, CTTableCell tableCell) {
+    CTTextBody textBody = tableCell.getTxBody();
+    if (textBody == null) {
+      // Nothing to keep the format of, the same text body POI creates
+      textBody = tableCell.addNewTxBody();
+      textBody.addNewBodyPr();
+      textBody.addNewLstStyle();
+    }
+    if (textBody.sizeOfPArray() == 0) {
+      textBody.addNewP();
+    }
+
+    // Assume the cell has only one paragraph, with one text run
+    CTTextParagraph paragraph = textBody.getPArray(0);
+    while (paragraph.sizeOfRArray() > 1) {
+      paragraph.removeR(1);
+    }
+    while (paragraph.sizeOfBrArray() > 0) {
+      paragraph.removeBr(0);
+    }
+    while (paragraph.sizeOfFldArray() > 0) {
+      paragraph.removeFld(0);
+    }
+
+    CTRegularTextRun textRun;
+    if (paragraph.sizeOfRArray() > 0) {
+      textRun = paragraph.getRArray(0);
     } else {
-      log.error("The Table Cell is null. Could not write data");
+      // An empty cell, its format is kept in the end of paragraph properties
+      textRun = paragraph.addNewR();
+      if (paragraph.isSetEndParaRPr()) {
+        textRun.setRPr(paragraph.getEndParaRPr());
+      }
     }
+    textRun.setT(text);
   }
 
-  @Nullable
-  private CustomField getFirstCustomFieldByName(String fieldName) {
-    Collection<CustomField> fields = customFieldManager.getCustomFieldObjectsByName(fieldName);
+  /**
+   * The same solid fill as {@link XSLFTableCell#setFillColor(Color)}, for a cell of a slide that
+   * is not loaded by POI.
+   */
+  private static void setFillColor(Color color, CTTableCell tableCell) {
+    CTTableCellProperties properties = tableCell.isSetTcPr()
+        ? tableCell.getTcPr()
+        : tableCell.addNewTcPr();
+    CTSolidColorFillProperties fill = properties.isSetSolidFill()
+        ? properties.getSolidFill()
+        : properties.addNewSolidFill();
+    // Drop the previous color, whatever its kind
+    fill.set(CTSolidColorFillProperties.Factory.newInstance());
+    fill.addNewSrgbClr().setVal(
+        new byte[]{(byte) color.getRed(), (byte) color.getGreen(), (byte) color.getBlue()});
+  }
+
+  /**
+   * Counts the bytes written to the output, for the metrics.
+   */
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
 
-    if (fields.isEmpty()) {
-      log.warn("There is no field with name [{}] in the instance.", fieldName);
-      return null;
+    private CountingOutputStream(OutputStream out) {
+      super(out);
     }
 
-    // Inform the users about field with the same name
-    if (fields.size() > 1) {
-      log.warn("Found {} fields with the same name [{}] in the instance. "
-          + "Will select the first field.", fields.size(), fieldName);
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
     }
 
-    return (CustomField) fields.toArray()[0];
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
   }
 }
@@ -0,0 +1,246 @@
+package com.viz.jira.app.ppt.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A minimal zip writer for the PPTX packages. Unlike {@link java.util.zip.ZipOutputStream} it
+ * writes entries that are already compressed, so the parts that are the same in every deck (the
+ * masters, layouts, theme and images of the template) are deflated once per template and copied
+ * byte for byte afterwards.
+ *
+ * <p>Only what a PPTX needs is supported: no ZIP64 (at most 65535 entries and 4 GB), no data
+ * descriptors, no comments.
+ */
+final class PackageZipWriter {
+
+  private static final String MEDIA_DIRECTORY = "ppt/media/";
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+  private static final int VERSION = 20;
+  /* The entry names are UTF-8 */
+  private static final int FLAGS = 0x0800;
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  private static final long MAX_SIZE = 0xFFFFFFFFL;
+  private static final int MAX_ENTRIES = 0xFFFF;
+
+  private final OutputStream out;
+  private final int level;
+  private final int dosTime;
+  private final List<WrittenEntry> entries = new ArrayList<>();
+  private long position;
+
+  /**
+   * @param out The stream to write the zip to, it is not closed
+   * @param level The deflate level of the entries compressed by this writer
+   */
+  PackageZipWriter(OutputStream out, int level) {
+    this.out = out;
+    this.level = level;
+    this.dosTime = toDosTime(LocalDateTime.now());
+  }
+
+  /**
+   * Compress and write an entry. The media that are already compressed (PNG, JPEG,...) are
+   * stored, deflating them again costs CPU for no gain.
+   */
+  void write(String name, byte[] data) throws IOException {
+    write(ZipPart.compress(name, data, level));
+  }
+
+  /**
+   * Write an entry compressed beforehand, e.g. with {@link ZipPart#compress(String, byte[], int)}.
+   */
+  void write(ZipPart part) throws IOException {
+    if (entries.size() == MAX_ENTRIES) {
+      throw new IOException("Too many parts for a zip without ZIP64.");
+    }
+
+    byte[] name = part.name.getBytes(StandardCharsets.UTF_8);
+    WrittenEntry entry = new WrittenEntry(name, part, position);
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream(30 + name.length);
+    writeInt(header, LOCAL_HEADER_SIGNATURE);
+    writeShort(header, VERSION);
+    writeShort(header, FLAGS);
+    writeShort(header, part.method);
+    writeInt(header, dosTime);
+    writeInt(header, (int) part.crc);
+    writeInt(header, part.data.length);
+    writeInt(header, (int) part.size);
+    writeShort(header, name.length);
+    writeShort(header, 0);
+    header.write(name);
+
+    writeBytes(header.toByteArray());
+    writeBytes(part.data);
+    entries.add(entry);
+  }
+
+  /**
+   * Write the central directory. The stream is not closed.
+   */
+  void finish() throws IOException {
+    long centralDirectoryOffset = position;
+    for (WrittenEntry entry : entries) {
+      ByteArrayOutputStream header = new ByteArrayOutputStream(46 + entry.name.length);
+      writeInt(header, CENTRAL_HEADER_SIGNATURE);
+      writeShort(header, VERSION);
+      writeShort(header, VERSION);
+      writeShort(header, FLAGS);
+      writeShort(header, entry.part.method);
+      writeInt(header, dosTime);
+      writeInt(header, (int) entry.part.crc);
+      writeInt(header, entry.part.data.length);
+      writeInt(header, (int) entry.part.size);
+      writeShort(header, entry.name.length);
+      // Extra field, comment, disk number, internal and external attributes
+      writeShort(header, 0);
+      writeShort(header, 0);
+      writeShort(header, 0);
+      writeShort(header, 0);
+      writeInt(header, 0);
+      writeInt(header, (int) entry.offset);
+      header.write(entry.name);
+      writeBytes(header.toByteArray());
+    }
+    long centralDirectorySize = position - centralDirectoryOffset;
+
+    ByteArrayOutputStream end = new ByteArrayOutputStream(22);
+    writeInt(end, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+    writeShort(end, 0);
+    writeShort(end, 0);
+    writeShort(end, entries.size());
+    writeShort(end, entries.size());
+    writeInt(end, (int) centralDirectorySize);
+    writeInt(end, (int) centralDirectoryOffset);
+    writeShort(end, 0);
+    writeBytes(end.toByteArray());
+    out.flush();
+  }
+
+  private void writeBytes(byte[] data) throws IOException {
+    if (position + data.length > MAX_SIZE) {
+      throw new IOException("The deck is too big for a zip without ZIP64.");
+    }
+    out.write(data);
+    position += data.length;
+  }
+
+  private static void writeShort(ByteArrayOutputStream out, int value) {
+    out.write(value & 0xFF);
+    out.write((value >>> 8) & 0xFF);
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    writeShort(out, value & 0xFFFF);
+    writeShort(out, (value >>> 16) & 0xFFFF);
+  }
+
+  /**
+   * @return The MS-DOS date (high 16 bits) and time (low 16 bits) of the zip headers
+   */
+  private static int toDosTime(LocalDateTime time) {
+    return (time.getYear() - 1980) << 25
+        | time.getMonthValue() << 21
+        | time.getDayOfMonth() << 16
+        | time.getHour() << 11
+        | time.getMinute() << 5
+        | time.getSecond() >> 1;
+  }
+
+  private static boolean isCompressedMedia(String name) {
+    if (!name.startsWith(MEDIA_DIRECTORY)) {
+      return false;
+    }
+
+    String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    switch (extension) {
+      case "png":
+      case "jpg":
+      case "jpeg":
+      case "gif":
+      case "wdp":
+      case "mp3":
+      case "m4a":
+      case "mp4":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * One compressed entry, ready to be written to any number of zips.
+   */
+  static final class ZipPart {
+
+    private final String name;
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final byte[] data;
+
+    private ZipPart(String name, int method, long crc, long size, byte[] data) {
+      this.name = name;
+      this.method = method;
+      this.crc = crc;
+      this.size = size;
+      this.data = data;
+    }
+
+    /**
+     * @param level The deflate level, the media that are already compressed are stored
+     */
+    static ZipPart compress(String name, byte[] data, int level) {
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      if (isCompressedMedia(name)) {
+        return new ZipPart(name, METHOD_STORED, crc.getValue(), data.length, data);
+      }
+
+      // Raw deflate data, the zip headers replace the zlib wrapper
+      Deflater deflater = new Deflater(level, true);
+      try {
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          int length = deflater.deflate(buffer);
+          compressed.write(buffer, 0, length);
+        }
+        return new ZipPart(name, METHOD_DEFLATED, crc.getValue(), data.length,
+            compressed.toByteArray());
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+
+  private static final class WrittenEntry {
+
+    private final byte[] name;
+    private final ZipPart part;
+    private final long offset;
+
+    private WrittenEntry(byte[] name, ZipPart part, long offset) {
+      this.name = name;
+      this.part = part;
+      this.offset = offset;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the last written slides of each issue, so a deck whose issue only changed its Status or
+ * Overall Health can be patched instead of being generated again.
+ */
+public interface SlideCacheService {
+
+  /**
+   * Build the cache key of the issue slides. Unlike the deck cache key it does not change when
+   * the issue is updated: the cached slides tell themselves which data they were filled with. Like
+   * the deck cache key, each viewer has their own.
+   *
+   * @param issue The exported issue
+   * @param viewer The user the slides are filled for
+   * @param template The template the slides are filled from
+   * @return The cache key
+   */
+  String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template);
+
+  /**
+   * @return The cached slides, or null if they are not cached
+   */
+  @Nullable
+  CachedSlides get(String cacheKey);
+
+  void put(String cacheKey, CachedSlides slides);
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  long getCachedBytes();
+}
@@ -0,0 +1,73 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.metrics.CacheStats;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SlideCacheServiceImpl implements SlideCacheService, InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SlideCacheServiceImpl.class);
+
+  private final ExportMetricsService exportMetricsService;
+  private final ByteBudgetLruCache<String, CachedSlides> cache;
+
+  @Autowired
+  public SlideCacheServiceImpl(ExportMetricsService exportMetricsService) {
+    this.exportMetricsService = exportMetricsService;
+    long maxBytes = ExportSettings.getSlideCacheMaxBytes();
+    this.cache = new ByteBudgetLruCache<>(maxBytes, maxBytes / 4, CachedSlides::getSize);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    exportMetricsService.registerCache("SlideCache", new CacheStats(this::getHitCount,
+        this::getMissCount, this::getEvictionCount, this::getCachedBytes));
+  }
+
+  @Override
+  public String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template) {
+    return issue.getKey() + "-u" + viewer.getId() + "-" + template.getHash();
+  }
+
+  @Nullable
+  @Override
+  public CachedSlides get(String cacheKey) {
+    return cache.get(cacheKey);
+  }
+
+  @Override
+  public void put(String cacheKey, CachedSlides slides) {
+    if (!cache.put(cacheKey, slides)) {
+      log.debug("The slides [{}] are too big to be cached ({} bytes).", cacheKey,
+          slides.getSize());
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  public long getCachedBytes() {
+    return cache.getCachedBytes();
+  }
+}
@@ -0,0 +1,57 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.sdo.PreviewFormat;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Renders the filled slide of an issue to an image, so it can be previewed in the browser without
+ * downloading the PPTX. The rendered images are cached.
+ */
+public interface SlidePreviewService {
+
+  /**
+   * Build the cache key of a preview. Like the deck cache key, it changes whenever the issue is
+   * updated or the template changes, so it can also be used as the HTTP ETag of the preview, and
+   * each viewer has their own.
+   *
+   * @param issue The previewed issue
+   * @param viewer The user the slide is rendered for
+   * @param template The template the slide is filled from
+   * @param format The image format
+   * @param width The width of the image in pixels
+   * @return The cache key
+   */
+  String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      PreviewFormat format, int width);
+
+  /**
+   * @return The cached preview, or null if it is not cached
+   */
+  @Nullable
+  byte[] get(String cacheKey);
+
+  /**
+   * Fill the slide of the issue and render it. The result is cached.
+   *
+   * @param issue The issue to preview
+   * @param viewer The user the slide is rendered for, the logged in user
+   * @param template The template the slide is filled from
+   * @param format The image format: PNG gives the first slide of the issue, PDF one page per slide
+   * @param width The width of the image in pixels, the height follows the slide ratio
+   * @return The image data
+   * @throws IOException If the slide could not be filled or rendered
+   */
+  byte[] render(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      PreviewFormat format, int width) throws IOException;
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  long getCachedBytes();
+}
@@ -0,0 +1,157 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.user.ApplicationUser;
+import com.viz.jira.app.ppt.metrics.CacheStats;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+import com.viz.jira.app.ppt.sdo.ExportSettings;
+import com.viz.jira.app.ppt.sdo.IssueSlideData;
+import com.viz.jira.app.ppt.sdo.PreviewFormat;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import javax.imageio.ImageIO;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Renders the slides with POI's Graphics2D drawing, on a headless JVM (Jira runs with
+ * java.awt.headless=true). The fonts of the template must be installed on the Jira node, otherwise
+ * Java falls back to a default font and the text may wrap differently than in PowerPoint.
+ */
+@Service
+public class SlidePreviewServiceImpl implements SlidePreviewService, InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SlidePreviewServiceImpl.class);
+
+  private final IssueDataService issueDataService;
+  private final PPTGenerationService pptGenerationService;
+  private final ExportMetricsService exportMetricsService;
+  private final ByteBudgetLruCache<String, byte[]> cache;
+
+  @Autowired
+  public SlidePreviewServiceImpl(IssueDataService issueDataService,
+      PPTGenerationService pptGenerationService,
+      ExportMetricsService exportMetricsService) {
+    this.issueDataService = issueDataService;
+    this.pptGenerationService = pptGenerationService;
+    this.exportMetricsService = exportMetricsService;
+    long maxBytes = ExportSettings.getPreviewCacheMaxBytes();
+    this.cache = new ByteBudgetLruCache<>(maxBytes, maxBytes / 4, data -> data.length);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    exportMetricsService.registerCache("SlidePreview", new CacheStats(this::getHitCount,
+        this::getMissCount, this::getEvictionCount, this::getCachedBytes));
+  }
+
+  @Override
+  public String getCacheKey(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      PreviewFormat format, int width) {
+    return issue.getKey() + "-" + issue.getUpdated().getTime() + "-u" + viewer.getId() + "-"
+        + template.getHash() + "-" + width + "." + format.name().toLowerCase(Locale.ROOT);
+  }
+
+  @Nullable
+  @Override
+  public byte[] get(String cacheKey) {
+    return cache.get(cacheKey);
+  }
+
+  @Override
+  public byte[] render(Issue issue, ApplicationUser viewer, CompiledTemplate template,
+      PreviewFormat format, int width) throws IOException {
+    log.info("Rendering the {} preview of issue [{}] ({} px)...", format, issue.getKey(), width);
+    IssueSlideData data = issueDataService.collect(issue, template.getPlan());
+
+    byte[] result;
+    try (XMLSlideShow ppt = template.open()) {
+      XSLFSlide slide = ppt.getSlides().get(0);
+      pptGenerationService.fillSlide(data, template.getPlan(), slide);
+
+      long start = exportMetricsService.startTimer();
+      Dimension pageSize = ppt.getPageSize();
+      double scale = width / pageSize.getWidth();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      if (format == PreviewFormat.PNG) {
+        ImageIO.write(draw(slide, pageSize, scale), "png", out);
+      } else {
+        // The continuation slides are pages of the PDF
+        List<BufferedImage> images = new ArrayList<>();
+        for (XSLFSlide filledSlide : ppt.getSlides()) {
+          images.add(draw(filledSlide, pageSize, scale));
+        }
+        ImagePdfWriter.write(images, pageSize, out);
+      }
+      result = out.toByteArray();
+      exportMetricsService.recordStage(ExportStage.RENDERING, start);
+    }
+
+    String cacheKey = getCacheKey(issue, viewer, template, format, width);
+    if (!cache.put(cacheKey, result)) {
+      log.debug("The preview [{}] is too big to be cached ({} bytes).", cacheKey, result.length);
+    }
+    return result;
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  public long getCachedBytes() {
+    return cache.getCachedBytes();
+  }
+
+  private static BufferedImage draw(XSLFSlide slide, Dimension pageSize, double scale) {
+    int width = (int) Math.round(pageSize.getWidth() * scale);
+    int height = (int) Math.round(pageSize.getHeight() * scale);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+          RenderingHints.VALUE_ANTIALIAS_ON);
+      graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+          RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+          RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+      // The slide background may be transparent
+      graphics.setPaint(Color.WHITE);
+      graphics.fillRect(0, 0, width, height);
+
+      graphics.scale(scale, scale);
+      slide.draw(graphics);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+}
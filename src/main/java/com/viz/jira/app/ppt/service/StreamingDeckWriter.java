@@ -0,0 +1,454 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.service.PackageZipWriter.ZipPart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.xml.namespace.QName;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.ooxml.util.DocumentHelper;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTSlide;
+import org.openxmlformats.schemas.presentationml.x2006.main.SldDocument;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes a PPTX one slide at a time. Each slide is serialized into the zip as soon as it is
+ * written, so the caller can drop it and the memory does not grow with the number of slides. The
+ * parts of the template (masters, layouts, theme,...) are copied once by {@link #finish()}, with
+ * the slide list of "presentation.xml", its relationships and the content types rewritten for the
+ * written slides.
+ *
+ * <p>The slides of the template and their notes are not part of the output. Every written slide
+ * refers to the single copy of the template parts (layout, master, theme, images). The media a
+ * slide brings along are shared by content hash: an image used by 200 slides is written once, and
+ * a copy of a template image is replaced by the template image. Other parts that are not in the
+ * template (e.g. charts) are not supported.
+ *
+ * <p>The XML parts are deflated with the level of the {@link CompressionMode}. The media that are
+ * already compressed are stored, deflating them again costs CPU for no gain. The template parts
+ * are compressed once per template and mode, and copied byte for byte into every deck.
+ */
+final class StreamingDeckWriter {
+
+  private static final String PML_NS =
+      "http://schemas.openxmlformats.org/presentationml/2006/main";
+  private static final String RELATIONSHIPS_NS =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String PACKAGE_RELATIONSHIPS_NS =
+      "http://schemas.openxmlformats.org/package/2006/relationships";
+  private static final String CONTENT_TYPES_NS =
+      "http://schemas.openxmlformats.org/package/2006/content-types";
+
+  private static final String SLIDE_RELATIONSHIP_TYPE = RELATIONSHIPS_NS + "/slide";
+  private static final String NOTES_SLIDE_RELATIONSHIP_TYPE = RELATIONSHIPS_NS + "/notesSlide";
+  private static final String SLIDE_CONTENT_TYPE =
+      "application/vnd.openxmlformats-officedocument.presentationml.slide+xml";
+
+  private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+  private static final String PRESENTATION_PART = "ppt/presentation.xml";
+  private static final String PRESENTATION_RELS_PART = "ppt/_rels/presentation.xml.rels";
+  private static final String SLIDES_DIRECTORY = "ppt/slides/";
+  private static final String NOTES_SLIDES_DIRECTORY = "ppt/notesSlides/";
+  private static final String MEDIA_DIRECTORY = "ppt/media/";
+
+  /* The ids of the slide list must be at least 256 */
+  private static final int FIRST_SLIDE_ID = 256;
+
+  /* The same options POI uses when it writes a slide part */
+  private static final XmlOptions SLIDE_XML_OPTIONS =
+      new XmlOptions(POIXMLTypeLoader.DEFAULT_XML_OPTIONS);
+
+  static {
+    SLIDE_XML_OPTIONS.setSaveSyntheticDocumentElement(new QName(PML_NS, "sld"));
+  }
+
+  private final Map<String, byte[]> templateParts;
+  private final Map<String, ZipPart> compressedTemplateParts;
+  private final PackageZipWriter zip;
+  private int slideCount;
+
+  /* The media parts of the output by content hash: the template media, then the media written
+   * for the slides */
+  private final Map<String, String> mediaByHash = new HashMap<>();
+  /* The content types of the media written for the slides, by part name */
+  private final Map<String, String> slideMediaTypes = new LinkedHashMap<>();
+
+  /**
+   * @param template The template the slides are cloned from
+   * @param compression How hard the XML parts are deflated
+   * @param out The stream to write the PPTX data to, it is not closed
+   */
+  StreamingDeckWriter(CompiledTemplate template, CompressionMode compression, OutputStream out)
+      throws IOException {
+    this.templateParts = template.readParts();
+    this.compressedTemplateParts = template.getCompressedParts(compression);
+    this.zip = new PackageZipWriter(out, compression.getLevel());
+
+    for (Entry<String, byte[]> part : templateParts.entrySet()) {
+      if (part.getKey().startsWith(MEDIA_DIRECTORY)) {
+        mediaByHash.putIfAbsent(contentHash(part.getValue()), part.getKey());
+      }
+    }
+  }
+
+  /**
+   * Write the slides at the end of the deck, in the given order. The slides can be removed from
+   * their slide show afterwards.
+   *
+   * @return The written parts of the slides, in the given order
+   */
+  List<SlidePart> writeSlides(List<XSLFSlide> slides) throws IOException {
+    List<SlidePart> slideParts = new ArrayList<>(slides.size());
+    for (XSLFSlide slide : slides) {
+      // The relationships first, they write the media the slide brings along
+      byte[] relationships = writeSlideRelationships(slide.getPackagePart());
+      SlidePart slidePart = new SlidePart(SlidePart.toXml(slide.getXmlObject()), relationships);
+      writeSlidePart(slidePart);
+      slideParts.add(slidePart);
+    }
+    return slideParts;
+  }
+
+  /**
+   * Write slides written before by {@link #writeSlides(List)} of another deck of the same
+   * template, at the end of this deck. They must not refer to slide media, see
+   * {@link #hasSlideMedia()}.
+   */
+  void writeSlideParts(List<SlidePart> slideParts) throws IOException {
+    for (SlidePart slidePart : slideParts) {
+      writeSlidePart(slidePart);
+    }
+  }
+
+  /**
+   * @return True if a written slide refers to a media part that is not in the template
+   */
+  boolean hasSlideMedia() {
+    return !slideMediaTypes.isEmpty();
+  }
+
+  /**
+   * Write the parts of the template and finish the zip. The stream is not closed.
+   */
+  void finish() throws IOException {
+    List<String> slideRelationshipIds = new ArrayList<>(slideCount);
+    for (int i = 1; i <= slideCount; i++) {
+      slideRelationshipIds.add("rIdSlide" + i);
+    }
+
+    for (Entry<String, byte[]> part : templateParts.entrySet()) {
+      String name = part.getKey();
+      if (name.startsWith(SLIDES_DIRECTORY) || name.startsWith(NOTES_SLIDES_DIRECTORY)) {
+        // The template slides have been the prototypes, they are not part of the output
+        continue;
+      }
+
+      switch (name) {
+        case PRESENTATION_PART:
+          zip.write(name, rewriteSlideList(part.getValue(), slideRelationshipIds));
+          break;
+        case PRESENTATION_RELS_PART:
+          zip.write(name, rewritePresentationRelationships(part.getValue(),
+              slideRelationshipIds));
+          break;
+        case CONTENT_TYPES_PART:
+          zip.write(name, rewriteContentTypes(part.getValue()));
+          break;
+        default:
+          zip.write(compressedTemplateParts.get(name));
+      }
+    }
+    zip.finish();
+  }
+
+  private void writeSlidePart(SlidePart slidePart) throws IOException {
+    slideCount++;
+    zip.write(SLIDES_DIRECTORY + "slide" + slideCount + ".xml", slidePart.xml);
+    zip.write(SLIDES_DIRECTORY + "_rels/slide" + slideCount + ".xml.rels",
+        slidePart.relationships);
+  }
+
+  private byte[] writeSlideRelationships(PackagePart slidePart) throws IOException {
+    StringBuilder xml = new StringBuilder(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<Relationships xmlns=\"")
+        .append(PACKAGE_RELATIONSHIPS_NS).append("\">");
+    try {
+      for (PackageRelationship relationship : slidePart.getRelationships()) {
+        if (NOTES_SLIDE_RELATIONSHIP_TYPE.equals(relationship.getRelationshipType())) {
+          // The notes of the template slide are not copied
+          continue;
+        }
+
+        boolean external = relationship.getTargetMode() == TargetMode.EXTERNAL;
+        String target = external
+            ? relationship.getTargetURI().toString()
+            : resolveTarget(slidePart, relationship);
+
+        xml.append("<Relationship Id=\"").append(escape(relationship.getId()))
+            .append("\" Type=\"").append(escape(relationship.getRelationshipType()))
+            .append("\" Target=\"").append(escape(target))
+            .append('"');
+        if (external) {
+          xml.append(" TargetMode=\"External\"");
+        }
+        xml.append("/>");
+      }
+    } catch (InvalidFormatException e) {
+      throw new IOException("Could not read the relationships of the slide.", e);
+    }
+    return xml.append("</Relationships>").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The slide is renamed in the output, its relative targets are only valid if they point to a
+   * part that is copied from the template. A media part is replaced by its shared copy.
+   *
+   * @return The target to write in the relationships of the slide
+   */
+  private String resolveTarget(PackagePart slidePart, PackageRelationship relationship)
+      throws IOException {
+    URI target = PackagingURIHelper.resolvePartUri(slidePart.getPartName().getURI(),
+        relationship.getTargetURI());
+    String targetName = target.getPath().substring(1);
+    if (templateParts.containsKey(targetName) && !targetName.startsWith(SLIDES_DIRECTORY)) {
+      return relationship.getTargetURI().toString();
+    }
+
+    if (targetName.startsWith(MEDIA_DIRECTORY)) {
+      PackagePart mediaPart;
+      try {
+        mediaPart = slidePart.getPackage().getPart(PackagingURIHelper.createPartName(target));
+      } catch (InvalidFormatException e) {
+        throw new IOException("Invalid media part name [" + targetName + "].", e);
+      }
+      if (mediaPart != null) {
+        // Relative to the slide, in the same directory as every slide of the output
+        return "../media/" + shareMedia(mediaPart, targetName).substring(MEDIA_DIRECTORY.length());
+      }
+    }
+    throw new IOException("The slide refers to the part [" + targetName
+        + "] which is not a part of the template.");
+  }
+
+  /**
+   * @return The name of the media part in the output with the same content, written now if this
+   * is the first slide using it
+   */
+  private String shareMedia(PackagePart mediaPart, String name) throws IOException {
+    byte[] data;
+    try (InputStream in = mediaPart.getInputStream()) {
+      data = IOUtils.toByteArray(in);
+    }
+
+    String hash = contentHash(data);
+    String sharedName = mediaByHash.get(hash);
+    if (sharedName != null) {
+      return sharedName;
+    }
+
+    String extension = name.substring(name.lastIndexOf('.'));
+    int index = slideMediaTypes.size() + 1;
+    do {
+      sharedName = MEDIA_DIRECTORY + "slideMedia" + index++ + extension;
+    } while (templateParts.containsKey(sharedName));
+
+    zip.write(sharedName, data);
+    mediaByHash.put(hash, sharedName);
+    slideMediaTypes.put(sharedName, mediaPart.getContentType());
+    return sharedName;
+  }
+
+  private byte[] rewriteSlideList(byte[] presentationXml, List<String> slideRelationshipIds)
+      throws IOException {
+    Document document = parse(presentationXml);
+    NodeList slideLists = document.getElementsByTagNameNS(PML_NS, "sldIdLst");
+    if (slideLists.getLength() == 0) {
+      throw new IOException("The presentation of the template has no slide list.");
+    }
+
+    Element slideList = (Element) slideLists.item(0);
+    while (slideList.hasChildNodes()) {
+      slideList.removeChild(slideList.getFirstChild());
+    }
+    for (int i = 0; i < slideRelationshipIds.size(); i++) {
+      Element slideId = document.createElementNS(PML_NS, qualify(slideList.getPrefix(), "sldId"));
+      slideId.setAttribute("id", String.valueOf(FIRST_SLIDE_ID + i));
+      slideId.setAttributeNS(RELATIONSHIPS_NS, "r:id", slideRelationshipIds.get(i));
+      slideList.appendChild(slideId);
+    }
+    return serialize(document);
+  }
+
+  private byte[] rewritePresentationRelationships(byte[] relsXml,
+      List<String> slideRelationshipIds) throws IOException {
+    Document document = parse(relsXml);
+    Element root = document.getDocumentElement();
+
+    NodeList relationships = root.getElementsByTagNameNS(PACKAGE_RELATIONSHIPS_NS,
+        "Relationship");
+    for (int i = relationships.getLength() - 1; i >= 0; i--) {
+      Element relationship = (Element) relationships.item(i);
+      if (SLIDE_RELATIONSHIP_TYPE.equals(relationship.getAttribute("Type"))) {
+        root.removeChild(relationship);
+      }
+    }
+
+    for (int i = 0; i < slideRelationshipIds.size(); i++) {
+      Element relationship = document.createElementNS(PACKAGE_RELATIONSHIPS_NS,
+          qualify(root.getPrefix(), "Relationship"));
+      relationship.setAttribute("Id", slideRelationshipIds.get(i));
+      relationship.setAttribute("Type", SLIDE_RELATIONSHIP_TYPE);
+      relationship.setAttribute("Target", "slides/slide" + (i + 1) + ".xml");
+      root.appendChild(relationship);
+    }
+    return serialize(document);
+  }
+
+  private byte[] rewriteContentTypes(byte[] contentTypesXml) throws IOException {
+    Document document = parse(contentTypesXml);
+    Element root = document.getDocumentElement();
+
+    NodeList overrides = root.getElementsByTagNameNS(CONTENT_TYPES_NS, "Override");
+    for (int i = overrides.getLength() - 1; i >= 0; i--) {
+      Element override = (Element) overrides.item(i);
+      String partName = override.getAttribute("PartName");
+      if (partName.startsWith("/" + SLIDES_DIRECTORY)
+          || partName.startsWith("/" + NOTES_SLIDES_DIRECTORY)) {
+        root.removeChild(override);
+      }
+    }
+
+    for (int i = 1; i <= slideCount; i++) {
+      Element override = document.createElementNS(CONTENT_TYPES_NS,
+          qualify(root.getPrefix(), "Override"));
+      override.setAttribute("PartName", "/" + SLIDES_DIRECTORY + "slide" + i + ".xml");
+      override.setAttribute("ContentType", SLIDE_CONTENT_TYPE);
+      root.appendChild(override);
+    }
+    for (Entry<String, String> media : slideMediaTypes.entrySet()) {
+      Element override = document.createElementNS(CONTENT_TYPES_NS,
+          qualify(root.getPrefix(), "Override"));
+      override.setAttribute("PartName", "/" + media.getKey());
+      override.setAttribute("ContentType", media.getValue());
+      root.appendChild(override);
+    }
+    return serialize(document);
+  }
+
+  private static String contentHash(byte[] data) throws IOException {
+    try {
+      return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(data));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Could not hash the media part.", e);
+    }
+  }
+
+  private static Document parse(byte[] xml) throws IOException {
+    try {
+      return DocumentHelper.readDocument(new ByteArrayInputStream(xml));
+    } catch (SAXException e) {
+      throw new IOException("Could not parse a part of the template.", e);
+    }
+  }
+
+  private static byte[] serialize(Document document) throws IOException {
+    try {
+      Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+      transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      transformer.transform(new DOMSource(document), new StreamResult(out));
+      return out.toByteArray();
+    } catch (TransformerException e) {
+      throw new IOException("Could not write a part of the presentation.", e);
+    }
+  }
+
+  private static String qualify(String prefix, String localName) {
+    return prefix != null ? prefix + ":" + localName : localName;
+  }
+
+  private static String escape(String value) {
+    return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;")
+        .replace(">", "&gt;");
+  }
+
+  /**
+   * The XML of a written slide and of its relationships.
+   */
+  static final class SlidePart {
+
+    private final byte[] xml;
+    private final byte[] relationships;
+
+    private SlidePart(byte[] xml, byte[] relationships) {
+      this.xml = xml;
+      this.relationships = relationships;
+    }
+
+    /**
+     * @return A new copy of the slide XML, e.g. to change it and write it with
+     * {@link #withSlide(CTSlide)}
+     */
+    CTSlide readSlide() throws IOException {
+      try {
+        return SldDocument.Factory.parse(new ByteArrayInputStream(xml),
+            POIXMLTypeLoader.DEFAULT_XML_OPTIONS).getSld();
+      } catch (XmlException e) {
+        throw new IOException("Could not parse a written slide.", e);
+      }
+    }
+
+    /**
+     * @return The part of the given slide XML, with the same relationships
+     */
+    SlidePart withSlide(CTSlide slide) throws IOException {
+      return new SlidePart(toXml(slide), relationships);
+    }
+
+    /**
+     * @return The number of bytes held by the part
+     */
+    int getSize() {
+      return xml.length + relationships.length;
+    }
+
+    private static byte[] toXml(CTSlide slide) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      slide.save(out, SLIDE_XML_OPTIONS);
+      return out.toByteArray();
+    }
+  }
+}
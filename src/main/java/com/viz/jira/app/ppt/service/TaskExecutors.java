@@ -0,0 +1,77 @@
+package com.viz.jira.app.ppt.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors of short blocking tasks (database reads, wiki rendering). On Java 21 and
+ * later every task gets its own virtual thread. On older JVMs, which Jira still supports, the tasks
+ * share a bounded pool of platform threads. The virtual threads are created by reflection, the
+ * plugin is compiled for Java 8.
+ *
+ * <p>The virtual thread executor has no limit: on Java 21 the number of field reads running at
+ * once on the node is only bounded by the exports running at once, see the generation slots of
+ * {@link ExportLimitService}.
+ */
+final class TaskExecutors {
+
+  private static final Logger log = LoggerFactory.getLogger(TaskExecutors.class);
+
+  private static final int FALLBACK_QUEUE_SIZE = 1000;
+
+  /**
+   * @param name The name prefix of the threads
+   * @param fallbackThreads The size of the pool when there are no virtual threads
+   */
+  static ExecutorService newBlockingTaskExecutor(String name, int fallbackThreads) {
+    ThreadFactory virtualThreadFactory = virtualThreadFactory(name);
+    if (virtualThreadFactory != null) {
+      try {
+        Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+            ThreadFactory.class);
+        log.info("The [{}] tasks run on virtual threads.", name);
+        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, virtualThreadFactory);
+      } catch (ReflectiveOperationException e) {
+        log.warn("Could not create the virtual thread executor [{}].", name, e);
+      }
+    }
+
+    log.info("The [{}] tasks run on a pool of {} threads.", name, fallbackThreads);
+    /* When the queue is full the caller runs the task itself, that slows down the request that
+     * floods the pool instead of failing it. */
+    return new ThreadPoolExecutor(fallbackThreads, fallbackThreads, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(FALLBACK_QUEUE_SIZE), new NamedThreadFactory(name),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * @return {@code Thread.ofVirtual().name(name + "-", 1).factory()}, or null before Java 21
+   */
+  private static ThreadFactory virtualThreadFactory(String name) {
+    try {
+      // The builder implementation is not public, its methods are called through the interface
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, name + "-", 1L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return null;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // e.g. the virtual threads are a preview feature of Java 19 and 20
+      log.debug("The virtual threads are not available.", e);
+      return null;
+    }
+  }
+
+  private TaskExecutors() {
+    // Util class
+  }
+}
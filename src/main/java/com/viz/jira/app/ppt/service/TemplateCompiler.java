@@ -0,0 +1,166 @@
+package com.viz.jira.app.ppt.service;
+
+import com.viz.jira.app.ppt.sdo.BindingSource;
+import com.viz.jira.app.ppt.sdo.CellBinding;
+import com.viz.jira.app.ppt.sdo.ShapeBinding;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.poi.xslf.usermodel.XSLFShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles the bindings file of the template against its slide into a {@link TemplatePlan}. Every
+ * binding is checked here, so a mistake in the file fails the template load instead of an export.
+ */
+final class TemplateCompiler {
+
+  private static final Logger log = LoggerFactory.getLogger(TemplateCompiler.class);
+
+  private TemplateCompiler() {
+    // Util class
+  }
+
+  static TemplatePlan compile(XSLFSlide slide, Properties bindings) throws IOException {
+    List<XSLFShape> shapes = slide.getShapes();
+    Map<String, Integer> tableIndexes = new HashMap<>();
+    for (int i = 0; i < shapes.size(); i++) {
+      if (shapes.get(i) instanceof XSLFTable) {
+        tableIndexes.put(shapes.get(i).getShapeName(), i);
+      }
+    }
+
+    /* Shapes in slide order, cells in row then column order */
+    Map<Integer, List<CellBinding>> cellsByShape = new TreeMap<>();
+    Set<String> customFieldNames = new LinkedHashSet<>();
+    int milestoneRowsPerSlide = Integer.MAX_VALUE;
+
+    for (String key : bindings.stringPropertyNames()) {
+      int columnDot = key.lastIndexOf('.');
+      int rowDot = columnDot > 0 ? key.lastIndexOf('.', columnDot - 1) : -1;
+      if (rowDot <= 0) {
+        throw invalid(key, "expected <Shape name>.<row>.<column>");
+      }
+
+      String shapeName = key.substring(0, rowDot);
+      Integer shapeIndex = tableIndexes.get(shapeName);
+      if (shapeIndex == null) {
+        throw invalid(key, "there is no table named [" + shapeName + "] in the template");
+      }
+
+      XSLFTable table = (XSLFTable) shapes.get(shapeIndex);
+      int row = parseIndex(key, key.substring(rowDot + 1, columnDot));
+      int column = parseIndex(key, key.substring(columnDot + 1));
+      if (row >= table.getNumberOfRows() || column >= table.getNumberOfColumns()) {
+        throw invalid(key, "the table has only " + table.getNumberOfRows() + " rows and "
+            + table.getNumberOfColumns() + " columns");
+      }
+
+      CellBinding cell = compileCell(key, bindings.getProperty(key).trim(), row, column);
+      if (cell.getSource() == BindingSource.CUSTOM_FIELD) {
+        customFieldNames.add(cell.getFieldName());
+      } else if (cell.getSource() == BindingSource.MILESTONES) {
+        if (column + cell.getSourceIndexes().size() > table.getNumberOfColumns()) {
+          throw invalid(key, "the milestones do not fit in the columns of the table");
+        }
+        milestoneRowsPerSlide = table.getNumberOfRows() - row;
+      }
+      cellsByShape.computeIfAbsent(shapeIndex, index -> new ArrayList<>()).add(cell);
+    }
+
+    List<ShapeBinding> shapeBindings = new ArrayList<>(cellsByShape.size());
+    cellsByShape.forEach((shapeIndex, cells) -> {
+      cells.sort(Comparator.comparingInt(CellBinding::getRow)
+          .thenComparingInt(CellBinding::getColumn));
+      shapeBindings.add(ShapeBinding.builder()
+          .shapeIndex(shapeIndex)
+          .shapeName(shapes.get(shapeIndex).getShapeName())
+          .cells(Collections.unmodifiableList(cells))
+          .repeatedOnContinuation(
+              cells.stream().anyMatch(cell -> cell.getSource().isRepeatedOnContinuation()))
+          .build());
+    });
+
+    for (Map.Entry<String, Integer> table : tableIndexes.entrySet()) {
+      if (!cellsByShape.containsKey(table.getValue())) {
+        log.info("The table [{}] of the template has no binding, it is left as is.",
+            table.getKey());
+      }
+    }
+
+    return TemplatePlan.builder()
+        .shapes(Collections.unmodifiableList(shapeBindings))
+        .customFieldNames(Collections.unmodifiableList(new ArrayList<>(customFieldNames)))
+        .milestoneRowsPerSlide(milestoneRowsPerSlide)
+        .build();
+  }
+
+  private static CellBinding compileCell(String key, String value, int row, int column)
+      throws IOException {
+    int colon = value.indexOf(':');
+    String sourceKey = colon < 0 ? value : value.substring(0, colon).trim();
+    String argument = colon < 0 ? "" : value.substring(colon + 1).trim();
+
+    BindingSource source = BindingSource.fromKey(sourceKey);
+    if (source == null) {
+      throw invalid(key, "unknown source [" + sourceKey + "]");
+    }
+
+    CellBinding.CellBindingBuilder cell = CellBinding.builder()
+        .row(row)
+        .column(column)
+        .source(source)
+        .sourceIndexes(Collections.emptyList());
+    switch (source) {
+      case PXT_SUMMARY:
+        cell.sourceIndexes(Collections.singletonList(parseIndex(key, argument)));
+        break;
+      case MILESTONES:
+        List<Integer> columns = new ArrayList<>();
+        for (String jiraColumn : argument.split(",")) {
+          columns.add(parseIndex(key, jiraColumn.trim()));
+        }
+        cell.sourceIndexes(Collections.unmodifiableList(columns));
+        break;
+      case CUSTOM_FIELD:
+        if (argument.isEmpty()) {
+          throw invalid(key, "the custom field name is missing");
+        }
+        cell.fieldName(argument);
+        break;
+      default:
+        if (!argument.isEmpty()) {
+          throw invalid(key, "[" + sourceKey + "] takes no argument");
+        }
+    }
+    return cell.build();
+  }
+
+  private static int parseIndex(String key, String value) throws IOException {
+    try {
+      int index = Integer.parseInt(value);
+      if (index >= 0) {
+        return index;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw invalid(key, "[" + value + "] is not a valid index");
+  }
+
+  private static IOException invalid(String key, String reason) {
+    return new IOException("Invalid template binding [" + key + "]: " + reason + ".");
+  }
+}
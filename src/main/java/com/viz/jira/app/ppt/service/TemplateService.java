@@ -0,0 +1,53 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+public interface TemplateService {
+
+  /**
+   * @return The template packaged with the plugin
+   * @throws IOException If the template could not be loaded
+   */
+  CompiledTemplate getDefaultTemplate() throws IOException;
+
+  /**
+   * Select the template of the issue. The requested template wins, then the template named
+   * "&lt;PROJECT KEY&gt;-&lt;Issue type&gt;", then "&lt;PROJECT KEY&gt;", then the default one.
+   *
+   * @param issue The exported issue
+   * @param templateName The requested template, or null to select it from the issue
+   * @return The selected template
+   * @throws IllegalArgumentException If the requested template does not exist
+   * @throws IOException If the default template could not be loaded
+   */
+  CompiledTemplate selectTemplate(Issue issue, @Nullable String templateName) throws IOException;
+
+  /**
+   * Select the template of a bulk export. It is the requested template, or the template of the
+   * issues if they all have the same, or the default one.
+   *
+   * @param issues The exported issues
+   * @param templateName The requested template, or null to select it from the issues
+   * @return The selected template
+   * @throws IllegalArgumentException If the requested template does not exist
+   * @throws IOException If the default template could not be loaded
+   */
+  CompiledTemplate selectTemplate(List<Issue> issues, @Nullable String templateName)
+      throws IOException;
+
+  /**
+   * @return The names of the templates loaded from the template directory
+   */
+  Set<String> getTemplateNames();
+
+  /**
+   * Load the default template and every template of the template directory again.
+   *
+   * @throws IOException If the default template could not be loaded
+   */
+  void reload() throws IOException;
+}
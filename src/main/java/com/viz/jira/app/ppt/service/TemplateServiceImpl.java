@@ -0,0 +1,423 @@
+package com.viz.jira.app.ppt.service;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.atlassian.jira.config.util.JiraHome;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.sdo.TemplatePlan;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TemplateServiceImpl implements TemplateService, InitializingBean, DisposableBean {
+
+  private static final String DEFAULT_TEMPLATE_NAME = "default";
+  private static final String TEMPLATE_FILE_NAME = "Template.pptx";
+  private static final String BINDINGS_FILE_NAME = "Template.bindings.properties";
+
+  /* <jira home>/ppt-generator/templates/<name>.pptx, with an optional
+   * <name>.bindings.properties next to it */
+  private static final String TEMPLATE_DIRECTORY = "ppt-generator" + File.separator + "templates";
+  private static final String TEMPLATE_EXTENSION = ".pptx";
+  private static final String BINDINGS_EXTENSION = ".bindings.properties";
+
+  /* A template is usually copied in several writes, wait until the directory is quiet */
+  private static final long WATCH_QUIET_MILLIS = 500;
+
+  private static final Logger log = LoggerFactory.getLogger(TemplateServiceImpl.class);
+
+  private final JiraHome jiraHome;
+
+  private volatile CompiledTemplate defaultTemplate;
+
+  /* Copy-on-write: the map is never modified, a reload publishes a new one. An export holds the
+   * template it has selected, so a reload never blocks or changes it. */
+  private volatile Map<String, CompiledTemplate> templates = Collections.emptyMap();
+
+  private WatchService watchService;
+  private ExecutorService watchExecutor;
+
+  @Autowired
+  public TemplateServiceImpl(@ComponentImport JiraHome jiraHome) {
+    this.jiraHome = jiraHome;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    // Warm the cache when the plugin is enabled (or reloaded), not on the first export
+    reload();
+    startWatching();
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (watchExecutor != null) {
+      watchExecutor.shutdownNow();
+    }
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  @Override
+  public CompiledTemplate getDefaultTemplate() throws IOException {
+    CompiledTemplate template = defaultTemplate;
+    if (template == null) {
+      reload();
+      template = defaultTemplate;
+    }
+    return template;
+  }
+
+  @Override
+  public CompiledTemplate selectTemplate(Issue issue, @Nullable String templateName)
+      throws IOException {
+    if (templateName != null && !templateName.trim().isEmpty()) {
+      return getRequestedTemplate(templateName.trim());
+    }
+
+    Map<String, CompiledTemplate> currentTemplates = templates;
+    String projectKey = issue.getProjectObject().getKey();
+    CompiledTemplate template = currentTemplates.get(
+        projectKey + "-" + issue.getIssueType().getName());
+    if (template == null) {
+      template = currentTemplates.get(projectKey);
+    }
+    return template != null ? template : getDefaultTemplate();
+  }
+
+  @Override
+  public CompiledTemplate selectTemplate(List<Issue> issues, @Nullable String templateName)
+      throws IOException {
+    if (templateName != null && !templateName.trim().isEmpty()) {
+      return getRequestedTemplate(templateName.trim());
+    }
+
+    // One deck has one layout. Issues with different templates fall back to the default one.
+    CompiledTemplate selected = null;
+    for (Issue issue : issues) {
+      CompiledTemplate template = selectTemplate(issue, null);
+      if (selected != null && selected != template) {
+        log.info("The exported issues have different templates, the default one is used.");
+        return getDefaultTemplate();
+      }
+      selected = template;
+    }
+    return selected != null ? selected : getDefaultTemplate();
+  }
+
+  @Override
+  public Set<String> getTemplateNames() {
+    return templates.keySet();
+  }
+
+  @Override
+  public synchronized void reload() throws IOException {
+    log.info("Loading the PPT template [{}]...", TEMPLATE_FILE_NAME);
+    byte[] templateBytes = readResource(TEMPLATE_FILE_NAME);
+    defaultTemplate = compile(DEFAULT_TEMPLATE_NAME, new ByteArrayInputStream(templateBytes),
+        readResource(BINDINGS_FILE_NAME));
+
+    Path directory = getTemplateDirectory();
+    if (directory == null) {
+      return;
+    }
+
+    Map<String, CompiledTemplate> loadedTemplates = new HashMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        "*" + TEMPLATE_EXTENSION)) {
+      for (Path file : files) {
+        String name = getTemplateName(file);
+        CompiledTemplate template = loadTemplate(directory, name);
+        if (template == null) {
+          // A broken template keeps its previous version, like in reloadTemplate
+          template = templates.get(name);
+        }
+        if (template != null) {
+          loadedTemplates.put(name, template);
+        }
+      }
+    }
+    templates = Collections.unmodifiableMap(loadedTemplates);
+    log.info("{} PPT templates have been loaded from [{}].", loadedTemplates.size(), directory);
+  }
+
+  private CompiledTemplate getRequestedTemplate(String templateName) throws IOException {
+    if (DEFAULT_TEMPLATE_NAME.equals(templateName)) {
+      return getDefaultTemplate();
+    }
+
+    CompiledTemplate template = templates.get(templateName);
+    if (template == null) {
+      throw new IllegalArgumentException("The PPT template [" + templateName + "] does not exist.");
+    }
+    return template;
+  }
+
+  /**
+   * @return The template directory, created if needed, or null if Jira home is not available
+   */
+  @Nullable
+  private Path getTemplateDirectory() throws IOException {
+    File home = jiraHome.getHome();
+    if (home == null) {
+      log.warn("The Jira home is not available, only the default PPT template is used.");
+      return null;
+    }
+    return Files.createDirectories(home.toPath().resolve(TEMPLATE_DIRECTORY));
+  }
+
+  /**
+   * Load a template of the template directory. A broken template is logged and skipped, it must
+   * not prevent the other templates from being used.
+   *
+   * @return The template, or null if it does not exist or is broken
+   */
+  @Nullable
+  private CompiledTemplate loadTemplate(Path directory, String name) {
+    Path templateFile = directory.resolve(name + TEMPLATE_EXTENSION);
+    if (!Files.isRegularFile(templateFile)) {
+      return null;
+    }
+
+    try {
+      // A template without its own bindings has the layout of the default template
+      Path bindingsFile = directory.resolve(name + BINDINGS_EXTENSION);
+      byte[] bindingsBytes = Files.isRegularFile(bindingsFile)
+          ? Files.readAllBytes(bindingsFile)
+          : readResource(BINDINGS_FILE_NAME);
+      return compile(name, Files.newInputStream(templateFile), bindingsBytes);
+    } catch (IOException | RuntimeException e) {
+      String message = String.format("The PPT template [%s] could not be loaded.", templateFile);
+      log.error(message, e);
+      return null;
+    }
+  }
+
+  private CompiledTemplate compile(String name, InputStream templateStream, byte[] bindingsBytes)
+      throws IOException {
+    Map<String, byte[]> parts = readTemplateParts(templateStream);
+    byte[] bytes = writeStoredZip(parts);
+
+    /* Parse it once, so a broken template is reported at load time instead of on every export.
+     * The bindings are compiled against the slide at the same time. */
+    TemplatePlan plan;
+    try (XMLSlideShow ppt = new XMLSlideShow(new ByteArrayInputStream(bytes))) {
+      if (ppt.getSlides().isEmpty()) {
+        throw new IOException("The PPT template [" + name + "] does not contain any slide.");
+      }
+      plan = TemplateCompiler.compile(ppt.getSlides().get(0), readBindings(bindingsBytes));
+    }
+
+    CompiledTemplate template = new CompiledTemplate(name, hash(bytes, bindingsBytes), plan,
+        bytes);
+    log.info("The PPT template [{}] has been loaded. {} parts, {} bytes, {} bound tables.",
+        name, parts.size(), template.getSize(), plan.getShapes().size());
+    return template;
+  }
+
+  private void startWatching() throws IOException {
+    Path directory = getTemplateDirectory();
+    if (directory == null) {
+      return;
+    }
+
+    watchService = directory.getFileSystem().newWatchService();
+    directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    watchExecutor = Executors.newSingleThreadExecutor(
+        new NamedThreadFactory("ppt-generator-template-watcher"));
+    watchExecutor.execute(() -> watch(directory));
+    log.info("Watching the PPT template directory [{}].", directory);
+  }
+
+  private void watch(Path directory) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.take();
+        Set<String> changedNames = new HashSet<>();
+        boolean overflow = false;
+        while (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+              overflow = true;
+            } else {
+              String name = getTemplateName((Path) event.context());
+              if (name != null) {
+                changedNames.add(name);
+              }
+            }
+          }
+          if (!key.reset()) {
+            log.warn("The PPT template directory [{}] is no longer watched.", directory);
+            return;
+          }
+          key = watchService.poll(WATCH_QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        // A failed reload must not stop the watching, the next change may fix it
+        try {
+          if (overflow) {
+            reload();
+          } else {
+            changedNames.forEach(name -> reloadTemplate(directory, name));
+          }
+        } catch (IOException | RuntimeException e) {
+          log.error("Error while reloading the PPT templates.", e);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Load the template again and publish a new template map with it, or without it if it has been
+   * deleted. A broken template, e.g. one that is still being copied, does not replace the previous
+   * version: it stays in use until the template can be loaded.
+   */
+  synchronized void reloadTemplate(Path directory, String name) {
+    Map<String, CompiledTemplate> newTemplates = new HashMap<>(templates);
+    if (!Files.isRegularFile(directory.resolve(name + TEMPLATE_EXTENSION))) {
+      if (newTemplates.remove(name) != null) {
+        log.info("The PPT template [{}] has been removed.", name);
+      }
+    } else {
+      CompiledTemplate template = loadTemplate(directory, name);
+      if (template == null) {
+        if (newTemplates.containsKey(name)) {
+          log.warn("The previous version of the PPT template [{}] stays in use.", name);
+        }
+        return;
+      }
+      newTemplates.put(name, template);
+    }
+    templates = Collections.unmodifiableMap(newTemplates);
+  }
+
+  /**
+   * @return The template name of a template or bindings file, or null for any other file
+   */
+  @Nullable
+  private static String getTemplateName(Path file) {
+    String fileName = file.getFileName().toString();
+    if (fileName.endsWith(BINDINGS_EXTENSION)) {
+      return fileName.substring(0, fileName.length() - BINDINGS_EXTENSION.length());
+    } else if (fileName.endsWith(TEMPLATE_EXTENSION)) {
+      return fileName.substring(0, fileName.length() - TEMPLATE_EXTENSION.length());
+    }
+    return null;
+  }
+
+  private String hash(byte[] bytes, byte[] bindingsBytes) throws IOException {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      messageDigest.update(bytes);
+      messageDigest.update(bindingsBytes);
+      byte[] digest = messageDigest.digest();
+      StringBuilder hex = new StringBuilder();
+      // The first 8 bytes are plenty to tell template versions apart
+      for (int i = 0; i < 8; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Could not hash the PPT template.", e);
+    }
+  }
+
+  private byte[] readResource(String fileName) throws IOException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
+      if (inputStream == null) {
+        throw new IOException("The file [" + fileName + "] could not be read.");
+      }
+      return IOUtils.toByteArray(inputStream);
+    }
+  }
+
+  private Properties readBindings(byte[] bindingsBytes) throws IOException {
+    // UTF-8, the custom field names may not be latin-1
+    Properties bindings = new Properties();
+    bindings.load(new InputStreamReader(new ByteArrayInputStream(bindingsBytes),
+        StandardCharsets.UTF_8));
+    return bindings;
+  }
+
+  private Map<String, byte[]> readTemplateParts(InputStream inputStream) throws IOException {
+    Map<String, byte[]> parts = new LinkedHashMap<>();
+    try (ZipInputStream zip = new ZipInputStream(inputStream)) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          parts.put(entry.getName(), IOUtils.toByteArray(zip));
+        }
+      }
+    }
+    return parts;
+  }
+
+  private byte[] writeStoredZip(Map<String, byte[]> parts) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (Entry<String, byte[]> part : parts.entrySet()) {
+        byte[] data = part.getValue();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        /* STORED entries must declare their size and CRC up front */
+        ZipEntry entry = new ZipEntry(part.getKey());
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+      }
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,28 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+
+public interface WikiRenderService {
+
+  /**
+   * Render the wiki markup value of a multi-line text field to HTML. The result is cached until
+   * the issue is updated.
+   *
+   * @param customField The field the value comes from
+   * @param issue The issue the value comes from
+   * @return The rendered HTML, or "" if the field has no value
+   */
+  String renderToHtml(CustomField customField, Issue issue);
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  /**
+   * @return The heap taken by the cached HTML, in bytes
+   */
+  long getCachedBytes();
+}
@@ -0,0 +1,157 @@
+package com.viz.jira.app.ppt.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.RendererManager;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.viz.jira.app.ppt.metrics.CacheStats;
+import com.viz.jira.app.ppt.metrics.ExportStage;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class WikiRenderServiceImpl implements WikiRenderService, InitializingBean {
+
+  private static final String RENDERER_TYPE = "atlassian-wiki-renderer";
+
+  /* Budget of the cache in bytes of heap, a char of the rendered HTML takes 2 */
+  private static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+  private static final long MAX_ENTRY_BYTES = MAX_CACHED_BYTES / 8;
+
+  private static final Logger log = LoggerFactory.getLogger(WikiRenderServiceImpl.class);
+
+  private final RendererManager rendererManager;
+  private final JiraAuthenticationContext authContext;
+  private final ExportMetricsService exportMetricsService;
+  private final ByteBudgetLruCache<RenderKey, String> cache = new ByteBudgetLruCache<>(
+      MAX_CACHED_BYTES, MAX_ENTRY_BYTES, html -> 2L * html.length());
+
+  @Autowired
+  public WikiRenderServiceImpl(@ComponentImport RendererManager rendererManager,
+      @ComponentImport JiraAuthenticationContext authContext,
+      ExportMetricsService exportMetricsService) {
+    this.rendererManager = rendererManager;
+    this.authContext = authContext;
+    this.exportMetricsService = exportMetricsService;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    exportMetricsService.registerCache("WikiRender", new CacheStats(this::getHitCount,
+        this::getMissCount, this::getEvictionCount, this::getCachedBytes));
+  }
+
+  @Override
+  public String renderToHtml(CustomField customField, Issue issue) {
+    RenderKey key = RenderKey.of(customField, issue, authContext.getLoggedInUser());
+    if (key == null) {
+      cache.recordMiss();
+      return render(customField, issue);
+    }
+
+    String html = cache.get(key);
+    if (html == null) {
+      html = render(customField, issue);
+      if (!cache.put(key, html)) {
+        log.debug("The rendered HTML of [{}] is too big to be cached ({} chars).", key,
+            html.length());
+      }
+    }
+    return html;
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.getEvictionCount();
+  }
+
+  @Override
+  public long getCachedBytes() {
+    return cache.getCachedBytes();
+  }
+
+  private String render(CustomField customField, Issue issue) {
+    String value = customField.getValueFromIssue(issue);
+    String markup = value != null ? value : "";
+
+    long start = exportMetricsService.startTimer();
+    try {
+      return rendererManager.getRenderedContent(RENDERER_TYPE, markup,
+          issue.getIssueRenderContext());
+    } finally {
+      exportMetricsService.recordStage(ExportStage.WIKI_RENDERING, start);
+    }
+  }
+
+  /**
+   * The rendered HTML only changes when the issue is updated. The user is part of the key because
+   * the renderer shows linked issues and mentions depending on the user's permissions.
+   */
+  private static class RenderKey {
+
+    private final long issueId;
+    private final String fieldId;
+    private final long updated;
+    private final String userKey;
+
+    private RenderKey(long issueId, String fieldId, long updated, String userKey) {
+      this.issueId = issueId;
+      this.fieldId = fieldId;
+      this.updated = updated;
+      this.userKey = userKey;
+    }
+
+    /**
+     * @return The key, or null if the issue can not be cached (e.g. it is not stored yet)
+     */
+    private static RenderKey of(CustomField customField, Issue issue, ApplicationUser user) {
+      if (issue.getId() == null || issue.getUpdated() == null) {
+        return null;
+      }
+      String userKey = user != null ? user.getKey() : "";
+      return new RenderKey(issue.getId(), customField.getId(), issue.getUpdated().getTime(),
+          userKey);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RenderKey that = (RenderKey) o;
+      return issueId == that.issueId
+          && updated == that.updated
+          && fieldId.equals(that.fieldId)
+          && userKey.equals(that.userKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(issueId, fieldId, updated, userKey);
+    }
+
+    @Override
+    public String toString() {
+      return issueId + "/" + fieldId + "@" + updated;
+    }
+  }
+}
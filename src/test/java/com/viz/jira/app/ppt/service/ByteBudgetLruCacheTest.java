@@ -0,0 +1,63 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ByteBudgetLruCacheTest {
+
+  @Test
+  public void countsHitsAndMisses() {
+    ByteBudgetLruCache<String, byte[]> cache = newCache(100, 50);
+    cache.put("a", new byte[10]);
+
+    assertEquals(10, cache.get("a").length);
+    assertNull(cache.get("b"));
+    assertNull(cache.peek("b"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    ByteBudgetLruCache<String, byte[]> cache = newCache(100, 50);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.peek("a");
+    cache.put("c", new byte[40]);
+
+    assertTrue(cache.contains("a"));
+    assertFalse(cache.contains("b"));
+    assertTrue(cache.contains("c"));
+    assertEquals(80, cache.getCachedBytes());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  public void replacesEntry() {
+    ByteBudgetLruCache<String, byte[]> cache = newCache(100, 50);
+    cache.put("a", new byte[40]);
+    cache.put("a", new byte[20]);
+
+    assertEquals(20, cache.getCachedBytes());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void skipsTooBigEntry() {
+    ByteBudgetLruCache<String, byte[]> cache = newCache(100, 50);
+    cache.put("a", new byte[40]);
+
+    assertFalse(cache.put("b", new byte[51]));
+    assertFalse(cache.contains("b"));
+    assertTrue(cache.contains("a"));
+    assertEquals(40, cache.getCachedBytes());
+  }
+
+  private static ByteBudgetLruCache<String, byte[]> newCache(long maxBytes, long maxEntryBytes) {
+    return new ByteBudgetLruCache<>(maxBytes, maxEntryBytes, data -> data.length);
+  }
+}
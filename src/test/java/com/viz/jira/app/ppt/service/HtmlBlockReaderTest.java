@@ -0,0 +1,88 @@
+package com.viz.jira.app.ppt.service;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+/**
+ * The blocks read over the tokens must be the ones read over the document Jsoup parses from the
+ * same HTML, and their text must be Jsoup's {@code Element.text()}.
+ */
+public class HtmlBlockReaderTest {
+
+  @Test
+  public void readsParagraphsAndListItems() {
+    assertBlocks("<p>Hello <b>big</b>   world</p><ul><li>one</li><li>two &amp; three</li></ul>",
+        "Hello big world", "• one", "• two & three");
+  }
+
+  @Test
+  public void closesUnclosedParagraphsAndListItems() {
+    assertBlocks("<p>a<p>b<ul><li>c<li>d</ul><p>e", "a", "b", "• c", "• d", "e");
+  }
+
+  @Test
+  public void endsParagraphAtDivInside() {
+    // The "div" closes the "p", its "p" end tag becomes an empty paragraph
+    assertBlocks("<p>a<div>b</div>c</p><p>d</p>", "a", "", "d");
+  }
+
+  @Test
+  public void readsNestedListIntoItem() {
+    assertBlocks("<ul><li>a<ul><li>b</li><li>c</li></ul></li><li>d</li></ul>",
+        "• a b c", "• d");
+  }
+
+  @Test
+  public void closesElementsLeftOpenInBlock() {
+    assertBlocks("<ul><li>a<div>b</ul><p>c</p>", "• a b", "c");
+    assertBlocks("<div><p>a<b>b</div><p>c</p>", "ab", "c");
+  }
+
+  @Test
+  public void skipsTableWithUnclosedCells() {
+    assertBlocks("<table><tr><td>a<td>b<tr><td>c</table><p>kept</p>", "kept");
+  }
+
+  @Test
+  public void skipsNestedTables() {
+    assertBlocks("<table><tr><td><table><tr><td>a</td></tr></table><p>b</p></td></tr></table>"
+        + "<p>kept</p>", "kept");
+  }
+
+  @Test
+  public void endsUnclosedSkippedElementWithContainer() {
+    assertBlocks("<div><span>x</div><p>kept</p>", "kept");
+    assertBlocks("<div><table><tr><td><div>x</div><p>y</p></td></tr></table></div><p>kept</p>",
+        "kept");
+  }
+
+  @Test
+  public void readsNothingFromEmptyHtml() {
+    assertEquals(emptyList(), blocks(""));
+    assertEquals(emptyList(), blocks("<div></div>"));
+  }
+
+  private static void assertBlocks(String html, String... expected) {
+    assertEquals(asList(expected), blocks(html));
+    assertEquals(blocks(Jsoup.parse(html).body()), blocks(html));
+  }
+
+  private static List<String> blocks(String html) {
+    List<String> blocks = new ArrayList<>();
+    HtmlBlockReader.read(html, (text, bullet) -> blocks.add(bullet ? "• " + text : text));
+    return blocks;
+  }
+
+  private static List<String> blocks(Element element) {
+    List<String> blocks = new ArrayList<>();
+    HtmlBlockReader.read(element, (text, bullet) -> blocks.add(bullet ? "• " + text : text));
+    return blocks;
+  }
+}
@@ -0,0 +1,61 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.viz.jira.app.ppt.service.HtmlTokenizer.Token;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class HtmlTokenizerTest {
+
+  @Test
+  public void readsTagsAndText() {
+    assertEquals("<p>|text:a & b|<br/>|</p>|", tokens("<P class=\"x\">a &amp; b<br></p>"));
+  }
+
+  @Test
+  public void skipsCommentsAndScripts() {
+    assertEquals("<p>|text:a|<script/>|text:b|</p>|",
+        tokens("<!-- <p>no</p> --><p>a<script>if (a < b) {}</script>b</p>"));
+  }
+
+  @Test
+  public void readsLessThanAsText() {
+    assertEquals("<p>|text:a < b|</p>|", tokens("<p>a < b</p>"));
+  }
+
+  @Test
+  public void readsSelfClosingTag() {
+    HtmlTokenizer tokenizer = new HtmlTokenizer("<span/>");
+    assertEquals(Token.START_TAG, tokenizer.next());
+    assertTrue(tokenizer.isSelfClosing());
+    assertEquals(Token.EOF, tokenizer.next());
+  }
+
+  @Test
+  public void normalizesWhitespaceLikeJsoup() {
+    assertEquals("a b c", HtmlTokenizer.normalizeWhitespace(" a \n\t b  c  "));
+  }
+
+  private static String tokens(String html) {
+    HtmlTokenizer tokenizer = new HtmlTokenizer(html);
+    List<String> tokens = new ArrayList<>();
+    Token token;
+    while ((token = tokenizer.next()) != Token.EOF) {
+      switch (token) {
+        case START_TAG:
+          tokens.add("<" + tokenizer.tagName() + (tokenizer.isSelfClosing() ? "/>" : ">"));
+          break;
+        case END_TAG:
+          tokens.add("</" + tokenizer.tagName() + ">");
+          break;
+        default:
+          tokens.add("text:" + tokenizer.text());
+          break;
+      }
+    }
+    return String.join("|", tokens) + "|";
+  }
+}
@@ -0,0 +1,105 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+public class ImagePdfWriterTest {
+
+  private static final Pattern STARTXREF = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$");
+  private static final Pattern STREAM = Pattern.compile(
+      "/Length (\\d+)[^\n]*>>\nstream\n");
+
+  @Test
+  public void writesOnePagePerImage() throws Exception {
+    String pdf = write(Arrays.asList(image(64, 36), image(64, 36), image(64, 36)));
+
+    assertTrue(pdf.startsWith("%PDF-1.4\n"));
+    assertEquals(3, count(pdf, "/Type /Page "));
+    assertTrue(pdf.contains("/Count 3 >>"));
+    assertTrue(pdf.contains("/MediaBox [0 0 720.00 405.00]"));
+  }
+
+  @Test
+  public void writesXrefOffsetsOfObjects() throws Exception {
+    String pdf = write(Arrays.asList(image(64, 36), image(32, 18)));
+
+    Matcher startxref = STARTXREF.matcher(pdf);
+    assertTrue(startxref.find());
+    int xrefPosition = Integer.parseInt(startxref.group(1));
+    assertTrue(pdf.startsWith("xref\n0 9\n0000000000 65535 f \n", xrefPosition));
+
+    // The catalog, the page tree and 3 objects per page
+    String[] entries = pdf.substring(xrefPosition).split("\n");
+    for (int id = 1; id <= 8; id++) {
+      int offset = Integer.parseInt(entries[2 + id].substring(0, 10));
+      assertTrue("object " + id, pdf.startsWith(id + " 0 obj\n", offset));
+    }
+    assertTrue(pdf.contains("trailer\n<< /Size 9 /Root 1 0 R >>"));
+  }
+
+  @Test
+  public void writesStreamLengths() throws Exception {
+    String pdf = write(Collections.singletonList(image(64, 36)));
+
+    Matcher stream = STREAM.matcher(pdf);
+    int streams = 0;
+    while (stream.find()) {
+      int end = stream.end() + Integer.parseInt(stream.group(1));
+      assertTrue(pdf.startsWith("\nendstream\nendobj\n", end));
+      streams++;
+    }
+    assertEquals(2, streams);
+  }
+
+  @Test
+  public void embedsReadableJpeg() throws Exception {
+    String pdf = write(Collections.singletonList(image(64, 36)));
+
+    Matcher stream = STREAM.matcher(pdf);
+    int start = 0;
+    int length = 0;
+    while (stream.find()) {
+      start = stream.end();
+      length = Integer.parseInt(stream.group(1));
+    }
+    byte[] jpeg = pdf.substring(start, start + length).getBytes(StandardCharsets.ISO_8859_1);
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+    assertEquals(64, image.getWidth());
+    assertEquals(36, image.getHeight());
+    assertTrue(pdf.contains("/Width 64 /Height 36"));
+  }
+
+  /**
+   * @return The PDF, one char per byte so that the string indexes are the byte offsets
+   */
+  private static String write(List<BufferedImage> images) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImagePdfWriter.write(images, new Dimension(720, 405), out);
+    return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  private static BufferedImage image(int width, int height) {
+    return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,110 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+public class MilestoneRowReaderTest {
+
+  private static final String HEADER = "<tr><th>Milestone</th><th>Date</th></tr>";
+
+  @Test
+  public void readsRowsWithoutHeader() {
+    assertRows("<p>Plan</p><table>" + HEADER + "<tr><td>Design</td><td>May</td></tr>"
+            + "<tr><td>Launch</td><td>June</td></tr></table>", 10,
+        Arrays.asList(Arrays.asList("Design", "May"), Arrays.asList("Launch", "June")));
+  }
+
+  @Test
+  public void readsUnclosedRowsAndCells() {
+    assertRows("<table><tr><th>Milestone<th>Date<tr><td>Design<td>May<tr><td>Launch<td>June",
+        10, Arrays.asList(Arrays.asList("Design", "May"), Arrays.asList("Launch", "June")));
+  }
+
+  @Test
+  public void readsNestedTableAsCellText() {
+    assertRows("<table>" + HEADER + "<tr><td>Design<table><tr><td>a</td><td>b</td></tr>"
+            + "</table>done</td><td>May</td></tr></table>", 10,
+        Collections.singletonList(Arrays.asList("Design a b done", "May")));
+  }
+
+  @Test
+  public void stopsAtMaxRows() {
+    assertRows("<table>" + HEADER + "<tr><td>Design</td><td>May</td></tr>"
+            + "<tr><td>Launch</td><td>June</td></tr><tr><td>Review</td><td>July</td></tr>"
+            + "</table>", 2,
+        Arrays.asList(Arrays.asList("Design", "May"), Arrays.asList("Launch", "June")));
+  }
+
+  @Test
+  public void readsFirstTableOnly() {
+    assertRows("<table>" + HEADER + "<tr><td>Design</td><td>May</td></tr></table>"
+            + "<table>" + HEADER + "<tr><td>Other</td><td>June</td></tr></table>", 10,
+        Collections.singletonList(Arrays.asList("Design", "May")));
+  }
+
+  @Test
+  public void readsBlocksInCellAsWords() {
+    assertRows("<table>" + HEADER + "<tr><td><div>Design</div><div>review</div></td>"
+            + "<td>May<br>June &amp; <b>July</b></td></tr></table>", 10,
+        Collections.singletonList(Arrays.asList("Design review", "May June & July")));
+  }
+
+  @Test
+  public void returnsNullWithoutTable() {
+    String html = "<p>No milestones yet</p>";
+    assertNull(MilestoneRowReader.read(html, 10));
+    assertNull(jsoupRows(html, 10));
+  }
+
+  @Test
+  public void returnsNoRowsForHeaderOnly() {
+    assertRows("<table>" + HEADER + "</table>", 10, Collections.emptyList());
+  }
+
+  private static void assertRows(String html, int maxRows, List<List<String>> expected) {
+    assertEquals(expected, jsoupRows(html, maxRows));
+    assertEquals(expected, MilestoneRowReader.read(html, maxRows));
+  }
+
+  /**
+   * @return The rows of the first table as read from the Jsoup document, the reader's reference
+   */
+  private static List<List<String>> jsoupRows(String html, int maxRows) {
+    Element table = Jsoup.parse(html).body().selectFirst("table");
+    if (table == null) {
+      return null;
+    }
+
+    List<List<String>> rows = new ArrayList<>();
+    boolean headerSkipped = false;
+    for (Element section : table.children()) {
+      for (Element tr : section.children()) {
+        if (!"tr".equals(tr.normalName())) {
+          continue;
+        }
+        if (!headerSkipped) {
+          headerSkipped = true;
+          continue;
+        }
+        if (rows.size() == maxRows) {
+          return rows;
+        }
+
+        List<String> row = new ArrayList<>();
+        for (Element cell : tr.children()) {
+          row.add(cell.text());
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,163 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.viz.jira.app.ppt.sdo.CompressionMode;
+import com.viz.jira.app.ppt.service.PackageZipWriter.ZipPart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.junit.Test;
+
+public class PackageZipWriterTest {
+
+  private static final String XML = "<?xml version=\"1.0\"?><p:sld>"
+      + repeat("<a:t>Text</a:t>", 100) + "</p:sld>";
+
+  @Test
+  public void readsBackEveryMode() throws Exception {
+    Map<String, byte[]> parts = new LinkedHashMap<>();
+    parts.put("ppt/slides/slide1.xml", XML.getBytes(StandardCharsets.UTF_8));
+    parts.put("ppt/media/image1.png", new byte[] {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3});
+    parts.put("ppt/slides/\u00dcbersicht.xml", "\u00fc".getBytes(StandardCharsets.UTF_8));
+    parts.put("empty.txt", new byte[0]);
+
+    for (CompressionMode compression : CompressionMode.values()) {
+      byte[] zip = write(parts, compression);
+
+      /* Read with another charset: the names are only read as UTF-8 if the entries are flagged
+       * so */
+      File file = Files.createTempFile("package", ".zip").toFile();
+      try {
+        Files.write(file.toPath(), zip);
+        try (ZipFile zipFile = new ZipFile(file, StandardCharsets.ISO_8859_1)) {
+          assertEquals(parts.size(), zipFile.size());
+          for (Entry<String, byte[]> part : parts.entrySet()) {
+            ZipEntry entry = zipFile.getEntry(part.getKey());
+            assertArrayEquals(part.getValue(), read(zipFile.getInputStream(entry)));
+            assertEquals(part.getValue().length, entry.getSize());
+            assertEquals(crc(part.getValue()), entry.getCrc());
+          }
+          assertEquals(ZipEntry.STORED, zipFile.getEntry("ppt/media/image1.png").getMethod());
+          assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("ppt/slides/slide1.xml").getMethod());
+        }
+      } finally {
+        file.delete();
+      }
+
+      // The local headers alone, as a streaming reader sees them
+      try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip),
+          StandardCharsets.ISO_8859_1)) {
+        for (Entry<String, byte[]> part : parts.entrySet()) {
+          assertEquals(part.getKey(), in.getNextEntry().getName());
+          assertArrayEquals(part.getValue(), read(in));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void compressesLessWithFastMode() throws Exception {
+    Map<String, byte[]> parts = new LinkedHashMap<>();
+    parts.put("ppt/slides/slide1.xml", XML.getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(write(parts, CompressionMode.FAST).length
+        >= write(parts, CompressionMode.MAX).length);
+    assertTrue(write(parts, CompressionMode.MAX).length < XML.length());
+  }
+
+  @Test
+  public void opensAsSlideShow() throws Exception {
+    Map<String, byte[]> parts = new LinkedHashMap<>();
+    try (InputStream template = getClass().getClassLoader().getResourceAsStream("Template.pptx");
+        ZipInputStream in = new ZipInputStream(template)) {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        if (!entry.isDirectory()) {
+          parts.put(entry.getName(), read(in));
+        }
+      }
+    }
+
+    for (CompressionMode compression : CompressionMode.values()) {
+      try (XMLSlideShow ppt = new XMLSlideShow(
+          new ByteArrayInputStream(write(parts, compression)))) {
+        assertEquals(1, ppt.getSlides().size());
+      }
+    }
+  }
+
+  @Test
+  public void refusesTooManyEntries() throws Exception {
+    PackageZipWriter writer = new PackageZipWriter(new DiscardingOutputStream(),
+        CompressionMode.FAST.getLevel());
+    ZipPart part = ZipPart.compress("a", new byte[0], CompressionMode.FAST.getLevel());
+    for (int i = 0; i < 0xFFFF; i++) {
+      writer.write(part);
+    }
+
+    try {
+      writer.write(part);
+      fail("The 65536th entry needs ZIP64");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static byte[] write(Map<String, byte[]> parts, CompressionMode compression)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PackageZipWriter writer = new PackageZipWriter(out, compression.getLevel());
+    for (Entry<String, byte[]> part : parts.entrySet()) {
+      writer.write(part.getKey(), part.getValue());
+    }
+    writer.finish();
+    return out.toByteArray();
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    return IOUtils.toByteArray(in);
+  }
+
+  private static long crc(byte[] data) {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    return crc.getValue();
+  }
+
+  private static String repeat(String text, int count) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      result.append(text);
+    }
+    return result.toString();
+  }
+
+  private static final class DiscardingOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  }
+}
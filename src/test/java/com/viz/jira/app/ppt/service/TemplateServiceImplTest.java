@@ -0,0 +1,116 @@
+package com.viz.jira.app.ppt.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import com.atlassian.jira.config.util.JiraHome;
+import com.atlassian.jira.issue.Issue;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TemplateServiceImplTest {
+
+  private static final String NAME = "PROJ";
+
+  private Path home;
+  private Path directory;
+  private TemplateServiceImpl templateService;
+
+  @Before
+  public void setUp() throws Exception {
+    home = Files.createTempDirectory("ppt-generator-home");
+    directory = Files.createDirectories(home.resolve("ppt-generator").resolve("templates"));
+    copyPackagedTemplate(directory.resolve(NAME + ".pptx"));
+
+    templateService = new TemplateServiceImpl(jiraHome(home.toFile()));
+    templateService.reload();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try (Stream<Path> files = Files.walk(home)) {
+      files.sorted(Collections.reverseOrder()).forEach(file -> file.toFile().delete());
+    }
+  }
+
+  @Test
+  public void reloadsChangedTemplate() throws Exception {
+    CompiledTemplate loaded = selected();
+    Files.write(directory.resolve(NAME + ".bindings.properties"),
+        "Top\\ Table.0.0=issueKey\n".getBytes(StandardCharsets.UTF_8));
+
+    templateService.reloadTemplate(directory, NAME);
+
+    assertNotEquals(loaded.getHash(), selected().getHash());
+  }
+
+  @Test
+  public void keepsPreviousVersionOfBrokenTemplate() throws Exception {
+    CompiledTemplate loaded = selected();
+    // A template that is still being copied
+    Files.write(directory.resolve(NAME + ".pptx"), new byte[] {'P', 'K', 3, 4, 0});
+
+    templateService.reloadTemplate(directory, NAME);
+
+    assertSame(loaded, selected());
+  }
+
+  @Test
+  public void keepsPreviousVersionOfBrokenBindings() throws Exception {
+    CompiledTemplate loaded = selected();
+    Files.write(directory.resolve(NAME + ".bindings.properties"),
+        "Missing\\ Table.0.0=issueKey\n".getBytes(StandardCharsets.UTF_8));
+
+    templateService.reloadTemplate(directory, NAME);
+
+    assertSame(loaded, selected());
+  }
+
+  @Test
+  public void keepsPreviousVersionOfBrokenTemplateOnFullReload() throws Exception {
+    CompiledTemplate loaded = selected();
+    Files.write(directory.resolve(NAME + ".pptx"), new byte[] {'P', 'K', 3, 4, 0});
+
+    templateService.reload();
+
+    assertSame(loaded, selected());
+  }
+
+  @Test
+  public void removesDeletedTemplate() throws Exception {
+    Files.delete(directory.resolve(NAME + ".pptx"));
+
+    templateService.reloadTemplate(directory, NAME);
+
+    assertEquals(Collections.emptySet(), templateService.getTemplateNames());
+  }
+
+  private CompiledTemplate selected() throws IOException {
+    return templateService.selectTemplate((Issue) null, NAME);
+  }
+
+  private static void copyPackagedTemplate(Path target) throws Exception {
+    try (InputStream in = TemplateServiceImplTest.class.getClassLoader()
+        .getResourceAsStream("Template.pptx")) {
+      Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static JiraHome jiraHome(File home) {
+    return (JiraHome) Proxy.newProxyInstance(JiraHome.class.getClassLoader(),
+        new Class<?>[] {JiraHome.class},
+        (proxy, method, args) -> "getHome".equals(method.getName()) ? home : null);
+  }
+}